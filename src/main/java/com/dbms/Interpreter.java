@@ -25,6 +25,7 @@ public class Interpreter {
             PhysicalPlanBuilder ppb = new PhysicalPlanBuilder();
             logicalPlan.root.accept(ppb);
             ppb.physOp.dump(Catalog.pathToOutputFile(queryNumber));
+            ppb.physOp.close();
             logicalPlan.writePlan(queryNumber);
             ppb.writePlan(queryNumber);
             Catalog.cleanTempDir();
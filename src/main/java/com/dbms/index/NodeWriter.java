@@ -12,14 +12,19 @@ import java.util.List;
 /** Class for serializing leaf/index nodes and writing the header node. */
 public class NodeWriter extends IO {
 
+    /** Path to the index file */
+    private String path;
+
     /** Constructs a {@code NodeWriter} instance according to the given table and column names
      *
-     * @param tableName     unaliased name of the table
-     * @param attributeName name of the column
+     * @param c        unaliased table name and column name of the index
+     * @param pageSize number of bytes per node page, recorded in the header; a valid page size
      * @throws FileNotFoundException */
-    NodeWriter(Attribute c) throws FileNotFoundException {
-        buffer = ByteBuffer.allocate(PAGE_SIZE);
-        fout = new FileOutputStream(Catalog.pathToIndexFile(c));
+    NodeWriter(Attribute c, int pageSize) throws FileNotFoundException {
+        this.pageSize = checkPageSize(pageSize);
+        buffer = ByteBuffer.allocate(pageSize);
+        path = Catalog.pathToIndexFile(c);
+        fout = new FileOutputStream(path);
         fc = fout.getChannel();
         bufferIndex = 8;
     }
@@ -35,6 +40,7 @@ public class NodeWriter extends IO {
         writeInt(rootAddress);
         writeInt(numLeaves);
         writeInt(order);
+        writeInt(pageSizeCode(pageSize));
         writePage();
     }
 
@@ -73,10 +79,11 @@ public class NodeWriter extends IO {
         writePage();
     }
 
-    /** closes the buffer */
+    /** closes the buffer and drops pages of the previous index from the buffer pool */
     public void close() throws IOException {
         fout.close();
         fc.close();
+        Catalog.BUFFER_POOL.invalidate(path);
     }
 
     /** Writes num at the current bufferIndex and increments bufferIndex by 4
@@ -100,7 +107,7 @@ public class NodeWriter extends IO {
      * @param pageNumber page numebr to set channel to
      * @throws IOException */
     private void setChannelToPage(int pageNumber) throws IOException {
-        fc.position(PAGE_SIZE * pageNumber);
+        fc.position((long) pageSize * pageNumber);
         clearBuffer();
         bufferIndex = 0;
     }
@@ -1,11 +1,14 @@
 package com.dbms.index;
 
+import com.dbms.utils.BufferPool;
 import com.dbms.utils.Catalog;
 import com.dbms.utils.IO;
 import com.dbms.utils.TupleReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.List;
 
 /** A class that deserializes an index by first traversing to a leaf node, then walking across the
@@ -19,6 +22,18 @@ public class TreeDeserializer extends IO {
     /** The index to deserialize */
     private Index i;
 
+    /** True if the index and relation files are read through memory maps */
+    private boolean mapped;
+
+    /** Pool serving the index pages when not in mapped mode */
+    private BufferPool pool;
+
+    /** Id of the index file in the buffer pool */
+    private int fileId;
+
+    /** Buffer pool frame pinned for the current node, -1 if none */
+    private int frame = -1;
+
     /** Reader for the relation file */
     private TupleReader tr;
 
@@ -48,7 +63,9 @@ public class TreeDeserializer extends IO {
 
     public TreeDeserializer(Index i) throws IOException {
         this.i = i;
-        buffer = ByteBuffer.allocate(PAGE_SIZE);
+        mapped = Catalog.isMemoryMapped(i.name.TABLE);
+        pool = Catalog.BUFFER_POOL;
+        fileId = pool.fileId(Catalog.pathToIndexFile(i.name));
         open();
 
         // read header page
@@ -64,6 +81,39 @@ public class TreeDeserializer extends IO {
      * @return the first tuple in the relation with the key
      * @throws IOException */
     public List<Integer> getFirstTupleAtKey(Integer key) throws IOException {
+        return seekKey(key) ? readTuple() : null;
+    }
+
+    /** Reads the first matching tuple into a caller-owned array.
+     *
+     * @param key the attribute key of the tuple to look up; may not be present, null for lowest key
+     * @param row destination of the tuple data; length must be at least the number of attributes
+     * @return true if a tuple was read into row, false if no tuple has a key at least key
+     * @throws IOException */
+    public boolean getFirstTupleAtKey(Integer key, int[] row) throws IOException {
+        return getFirstTupleAtKey(key, row, 0);
+    }
+
+    /** Reads the first matching tuple into a caller-owned array at an offset, such as the next row
+     * of a batch.
+     *
+     * @param key    the attribute key of the tuple to look up; may not be present, null for lowest
+     *               key
+     * @param rows   destination of the tuple data
+     * @param offset position in rows of the tuple's first value
+     * @return true if a tuple was read into rows, false if no tuple has a key at least key
+     * @throws IOException */
+    public boolean getFirstTupleAtKey(Integer key, int[] rows, int offset) throws IOException {
+        return seekKey(key) && readTuple(rows, offset);
+    }
+
+    /** Reads the index to the leaf node holding the key and positions the deserializer at the RID
+     * of the first matching tuple.
+     *
+     * @param key the attribute key to look up; may not be present, null for lowest key
+     * @return true if a tuple has a key at least key
+     * @throws IOException */
+    private boolean seekKey(Integer key) throws IOException {
         open();
         readNode(rootAddress);
 
@@ -104,11 +154,9 @@ public class TreeDeserializer extends IO {
         if (entryNum == numEntries) {
             currNumRidsRead = numRids;
             currNumEntriesRead -= 1; // hack to make stepping work
-            if (!stepLeafLayer()) return null;
+            if (!stepLeafLayer()) return false;
         }
-
-        // read first tuple RID and return tuple
-        return readTuple();
+        return true;
     }
 
     /** Reads the next tuple in the leaves. Requires getFirstTupleAtKey was called to set the
@@ -128,6 +176,33 @@ public class TreeDeserializer extends IO {
         return readTuple();
     }
 
+    /** Reads the next tuple in the leaves into a caller-owned array. Requires getFirstTupleAtKey
+     * was called to set the deserializer to the beginning of a data entry.
+     *
+     * @param row destination of the tuple data; length must be at least the number of attributes
+     * @return true if a tuple was read into row, false if none are left
+     * @throws IOException */
+    public boolean getNextTuple(int[] row) throws IOException {
+        return getNextTuple(row, 0);
+    }
+
+    /** Reads the next tuple in the leaves into a caller-owned array at an offset. Requires
+     * getFirstTupleAtKey was called to set the deserializer to the beginning of a data entry.
+     *
+     * @param rows   destination of the tuple data
+     * @param offset position in rows of the tuple's first value
+     * @return true if a tuple was read into rows, false if none are left
+     * @throws IOException */
+    public boolean getNextTuple(int[] rows, int offset) throws IOException {
+        if (!memUsable) return false;
+        if (i.isClustered) {
+            if (tr.nextTuple(rows, offset)) return true;
+            close();
+            return false;
+        }
+        return stepLeafLayer() && readTuple(rows, offset);
+    }
+
     /** Reads the next two integers in the buffer and looks up the associated RID in the file.
      *
      * @return tuple at next RID
@@ -138,6 +213,18 @@ public class TreeDeserializer extends IO {
         return tr.readTuple(new RID(pageId, tupleId));
     }
 
+    /** Reads the next two integers in the buffer and looks up the associated RID in the file.
+     *
+     * @param rows   destination of the tuple data
+     * @param offset position in rows of the tuple's first value
+     * @return true if the tuple was read into rows
+     * @throws IOException */
+    private boolean readTuple(int[] rows, int offset) throws IOException {
+        int pageId = readInt();
+        int tupleId = readInt();
+        return tr.readTuple(new RID(pageId, tupleId), rows, offset);
+    }
+
     /** Steps the leaf layer by incrementing currNumRidsRead and checking for data entry and node
      * overflow. Finishes with the buffer index at the next RID to read.
      *
@@ -173,34 +260,70 @@ public class TreeDeserializer extends IO {
         return num;
     }
 
-    /** @param pageNumber the page number of the node to read
+    /** Pins the node's page in the buffer pool, releasing the previously read node.
+     *
+     * @param pageNumber the page number of the node to read
      * @throws IOException */
     private void readNode(int pageNumber) throws IOException {
-        clearBuffer();
-        fc.position(pageNumber * PAGE_SIZE);
-        fc.read(buffer);
+        if (mapped) {
+            bufferIndex = pageNumber * pageSize;
+            return;
+        }
+        unpin();
+        frame = pool.pin(fileId, pageNumber, pageSize, fc);
+        buffer = pool.page(frame);
         bufferIndex = 0;
     }
 
-    /** Opens the input stream, channel, and TupleReader if not already open
+    /** Releases the pin on the current node, if any */
+    private void unpin() {
+        if (frame == -1) return;
+        pool.unpin(frame);
+        frame = -1;
+    }
+
+    /** Opens the input stream, channel, and TupleReader if not already open. In mapped mode, the
+     * index file is mapped on the first open and the mapping is kept for later opens.
      *
      * @throws IOException */
     public void open() throws IOException {
-        if (!memUsable) {
-            fin = new FileInputStream(Catalog.pathToIndexFile(i.name));
-            fc = fin.getChannel();
-            tr = new TupleReader(Catalog.pathToTable(i.name.TABLE));
-            memUsable = true;
+        if (memUsable) return;
+        if (tr == null) tr = new TupleReader(Catalog.pathToTable(i.name.TABLE), mapped);
+        memUsable = true;
+        if (buffer != null && mapped) return;
+        fin = new FileInputStream(Catalog.pathToIndexFile(i.name));
+        fc = fin.getChannel();
+        pageSize = readPageSize(fc);
+        if (mapped && fc.size() < Integer.MAX_VALUE) {
+            buffer = fc.map(MapMode.READ_ONLY, 0, fc.size());
+            fin.close();
+            fc.close();
+        } else {
+            mapped = false;
         }
     }
 
+    /** The page size code is the fourth integer of the header page, after the order.
+     *
+     * @param fc open channel to an index file
+     * @return number of bytes per page of the index file
+     * @throws IOException */
+    private static int readPageSize(FileChannel fc) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(16);
+        fc.read(header, 0);
+        return pageSizeFromCode(header.getInt(12));
+    }
+
     /** Closes the input stream, channel, and TupleReader if not already closed
      *
      * @throws IOException */
     public void close() throws IOException {
         if (memUsable) {
-            fin.close();
-            fc.close();
+            if (!mapped) {
+                unpin();
+                fin.close();
+                fc.close();
+            }
             tr.close();
             memUsable = false;
         }
@@ -4,15 +4,12 @@ import com.dbms.operators.physical.ExternalSortOperator;
 import com.dbms.operators.physical.ScanOperator;
 import com.dbms.utils.Attribute;
 import com.dbms.utils.Catalog;
+import com.dbms.utils.KeySort;
 import com.dbms.utils.TupleReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.OrderByElement;
@@ -39,7 +36,7 @@ public class TreeIndexBuilder {
     public static void serialize(Index i) {
         try {
             TreeIndexBuilder.order = i.order;
-            nw = new NodeWriter(i.name);
+            nw = new NodeWriter(i.name, Catalog.INDEX_PAGE_SIZE);
             if (i.isClustered) createClusters(i.name);
             tableEntries = getDataEntries(i.name);
             serializeLeaves();
@@ -51,7 +48,8 @@ public class TreeIndexBuilder {
     }
 
     /** Sorts the scanned table by {@code tableName.attributeName} and replaces the input file with
-     * it
+     * it, keeping the file's page size and compression. The table's zone map is rebuilt, since its
+     * tuples moved to other pages.
      *
      * @param cn {@code ColumnName} containing unaliased name of the table and column
      * @throws IOException */
@@ -63,32 +61,52 @@ public class TreeIndexBuilder {
         List<OrderByElement> sortCondition = Arrays.asList(o);
         ScanOperator scanOp = new ScanOperator(cn.TABLE);
         ExternalSortOperator sortOp = new ExternalSortOperator(scanOp, sortCondition, 5);
-        sortOp.dump(Catalog.pathToTable(cn.TABLE));
+        String path = Catalog.pathToTable(cn.TABLE);
+        sortOp.dump(path, TupleReader.pageSizeOf(path), TupleReader.isCompressed(path));
         Catalog.cleanTempDir();
+        Catalog.STATS.updateZoneMap(cn.TABLE);
     }
 
-    /** @param cn {@code ColumnName} containing unaliased name of the table and column
+    /** Reads the key and RID of every tuple, packing each key with the tuple's position in the
+     * table into a primitive key, so a single primitive sort orders entries by key and their RIDs
+     * by pageId and tupleId.
+     *
+     * @param cn {@code ColumnName} containing unaliased name of the table and column
      * @return list of all data entries in the table, sorted by key and with RIDs sorted by pageId
      *         and tupleId
      * @throws IOException */
     private static List<DataEntry> getDataEntries(Attribute cn) throws IOException {
         int attributeIndex = Catalog.getColumnIndex(cn);
         TupleReader tr = new TupleReader(Catalog.pathToTable(cn.TABLE));
-        Map<Integer, List<RID>> entries = new HashMap<>();
-
-        List<Integer> next;
-        while ((next = tr.nextTuple()) != null) {
-            int key = next.get(attributeIndex);
-            if (!entries.containsKey(key)) entries.put(key, new LinkedList<>());
-            entries.get(key).add(new RID(tr.pageId, tr.tupleId));
+        long[] keys = new long[1024];
+        int[] pageIds = new int[keys.length];
+        int[] tupleIds = new int[keys.length];
+        int n = 0;
+
+        int[] next = new int[Catalog.getAttributes(cn.TABLE).size()];
+        while (tr.nextTuple(next)) {
+            if (n == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * n);
+                pageIds = Arrays.copyOf(pageIds, 2 * n);
+                tupleIds = Arrays.copyOf(tupleIds, 2 * n);
+            }
+            keys[n] = KeySort.pack(next[attributeIndex], n);
+            pageIds[n] = tr.pageId;
+            tupleIds[n++] = tr.tupleId;
         }
-
-        List<DataEntry> out = new ArrayList<>(entries.size());
-        entries.forEach((key, rids) -> {
-            Collections.sort(rids);
+        tr.close();
+        Arrays.sort(keys, 0, n);
+
+        List<DataEntry> out = new ArrayList<>();
+        for (int start = 0, end; start < n; start = end) {
+            int key = KeySort.high(keys[start]);
+            List<RID> rids = new ArrayList<>();
+            for (end = start; end < n && KeySort.high(keys[end]) == key; end++) {
+                int pos = KeySort.low(keys[end]);
+                rids.add(new RID(pageIds[pos], tupleIds[pos]));
+            }
             out.add(new DataEntry(key, rids));
-        });
-        Collections.sort(out);
+        }
 
         return out;
     }
@@ -12,7 +12,7 @@ public class LogicalDuplicateEliminationOperator extends LogicalOperator {
 
     public LogicalOperator child;
 
-    /** @param child child operator; must be a sort operator */
+    /** @param child child operator; a sort operator if the query orders its output */
     public LogicalDuplicateEliminationOperator(LogicalOperator child) {
         this.child = child;
     }
@@ -0,0 +1,42 @@
+package com.dbms.operators.logical;
+
+import static com.dbms.utils.Helpers.writeLevel;
+
+import com.dbms.queryplan.PhysicalPlanBuilder;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/** The logical representation of the limit operator, which contains the child operator and the
+ * number of rows to skip and return that we use to construct the physical operator */
+public class LogicalLimitOperator extends LogicalOperator {
+
+    public LogicalOperator child;
+
+    /** Maximum number of rows to return, null if unlimited */
+    public Long limit;
+
+    /** Number of rows to skip before returning rows */
+    public long offset;
+
+    /** @param child  child operator
+     * @param limit  maximum number of rows to return, null if unlimited
+     * @param offset number of rows to skip before returning rows */
+    public LogicalLimitOperator(LogicalOperator child, Long limit, long offset) {
+        this.child = child;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /** @param physicalPlan visitor which converts logical to physical operator
+     * @throws IOException */
+    @Override
+    public void accept(PhysicalPlanBuilder physicalPlan) throws IOException {
+        physicalPlan.visit(this);
+    }
+
+    @Override
+    public void write(PrintWriter pw, int level) {
+        pw.println(writeLevel(String.format("Limit[%s, %d]", limit != null ? limit : "ALL", offset), level));
+        child.write(pw, level + 1);
+    }
+}
@@ -3,8 +3,10 @@ package com.dbms.operators.logical;
 import static com.dbms.utils.Helpers.writeLevel;
 
 import com.dbms.queryplan.PhysicalPlanBuilder;
+import com.dbms.utils.Attribute;
 import com.dbms.utils.Catalog;
 import java.io.PrintWriter;
+import java.util.Set;
 
 /** The logical representation of the scan operator, which contains only the table name which we
  * need to construct the physical operator */
@@ -13,9 +15,19 @@ public class LogicalScanOperator extends LogicalOperator {
     /** {@code tableName} is the (aliased) name of the table to scan from */
     public String tableName;
 
+    /** {@code attributes} are the (aliased) attributes the query uses, null if it uses all of them */
+    public Set<Attribute> attributes;
+
     /** @param tableName name (aliased) of underlying table */
     public LogicalScanOperator(String tableName) {
+        this(tableName, null);
+    }
+
+    /** @param tableName  name (aliased) of underlying table
+     * @param attributes (aliased) attributes the query uses, null if it uses all of them */
+    public LogicalScanOperator(String tableName, Set<Attribute> attributes) {
         this.tableName = tableName;
+        this.attributes = attributes;
     }
 
     /** @param physicalPlan visitor which converts logical to physical operator */
@@ -2,7 +2,9 @@ package com.dbms.operators.physical;
 
 import static com.dbms.utils.Helpers.writeLevel;
 
-import com.dbms.utils.ExpressionParseVisitor;
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Condition;
+import com.dbms.utils.ConditionCompiler;
 import com.dbms.utils.Schema;
 import com.dbms.utils.Tuple;
 import java.io.PrintWriter;
@@ -30,13 +32,13 @@ public class BlockNestedLoopJoinOperator extends PhysicalOperator {
     /** True if buffer contains tuples to join */
     private boolean blockRemaining;
 
-    /** visitor for evaluating tuples on join conditions */
-    private ExpressionParseVisitor epv = new ExpressionParseVisitor();
-
     /** Expression for the join. Note: "most real-world joins are equijoins, but your BNLJ algorithm
      * should support all join conditions as specified in the Project 1 description" */
     private Expression joinCondition;
 
+    /** Join expression compiled against the outer and inner schemas, null if none */
+    private Condition condition;
+
     /** Current inner tuple */
     private Tuple innerTuple;
 
@@ -52,8 +54,9 @@ public class BlockNestedLoopJoinOperator extends PhysicalOperator {
         this.left = left;
         this.right = right;
         joinCondition = exp;
+        if (exp != null) condition = ConditionCompiler.compile(exp, left.schema, right.schema);
         innerTuple = right.getNextTuple();
-        maxTuples = pages * 4096 / (4 * schema.size());
+        maxTuples = pages * Catalog.BUFFER_PAGE_SIZE / (4 * schema.size());
         buffer = new ArrayList<>(maxTuples);
         readBlockIntoBuffer();
     }
@@ -83,13 +86,11 @@ public class BlockNestedLoopJoinOperator extends PhysicalOperator {
                 if (outerTupleId < buffer.size()) {
                     // check if inner and outer tuples satisfy the join condition, and return
                     // combined tuple if they do
-                    Tuple combinedTuple = Tuple.mergeTuples(buffer.get(outerTupleId), innerTuple);
+                    Tuple outerTuple = buffer.get(outerTupleId);
                     outerTupleId++;
-
-                    if (joinCondition == null) return combinedTuple;
-                    epv.currentTuple = combinedTuple;
-                    joinCondition.accept(epv);
-                    if (epv.booleanResult) return combinedTuple;
+                    if (condition == null || condition.test(outerTuple, innerTuple)) {
+                        return Tuple.mergeTuples(schema, outerTuple, innerTuple);
+                    }
                 } else {
                     // we have run out of tuples in outer (bottom level of nested loop). increment
                     // inner tuple and reset to first outer tuple
@@ -116,6 +117,15 @@ public class BlockNestedLoopJoinOperator extends PhysicalOperator {
         readBlockIntoBuffer();
     }
 
+    /** Drops the current outer block, so no more outer blocks are read, and closes both children */
+    @Override
+    public void close() {
+        buffer.clear();
+        blockRemaining = false;
+        left.close();
+        right.close();
+    }
+
     @Override
     public void write(PrintWriter pw, int level) {
         String s = String.format("BNLJ[%s]", joinCondition != null ? joinCondition.toString() : "");
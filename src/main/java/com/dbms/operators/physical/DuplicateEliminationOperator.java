@@ -3,6 +3,7 @@ package com.dbms.operators.physical;
 import static com.dbms.utils.Helpers.writeLevel;
 
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import java.io.PrintWriter;
 
 /** An operator that assumes its child returns Tuples in sorted order and filters out any
@@ -28,6 +29,30 @@ public class DuplicateEliminationOperator extends PhysicalOperator {
         return next;
     }
 
+    /** Narrows the selection vector of each child batch to the rows that differ from the row
+     * before them.
+     *
+     * @return next child batch with at least one unique row, null if none are left */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch b;
+        while ((b = child.getNextBatch()) != null) {
+            int kept = 0;
+            for (int i = 0; i < b.count; i++) {
+                int row = b.selection[i];
+                boolean duplicate =
+                        kept > 0 ? b.equalRows(b.selection[kept - 1], row) : prev != null && b.rowEquals(row, prev);
+                if (!duplicate) b.selection[kept++] = row;
+            }
+            b.count = kept;
+            if (kept > 0) {
+                prev = b.tuple(kept - 1);
+                return b;
+            }
+        }
+        return null;
+    }
+
     /** resets the child operator and sets prev to null */
     @Override
     public void reset() {
@@ -35,6 +60,12 @@ public class DuplicateEliminationOperator extends PhysicalOperator {
         prev = null;
     }
 
+    /** closes the child operator */
+    @Override
+    public void close() {
+        child.close();
+    }
+
     @Override
     public void write(PrintWriter pw, int level) {
         pw.println(writeLevel("DupElim", level));
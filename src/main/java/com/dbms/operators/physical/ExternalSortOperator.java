@@ -4,22 +4,29 @@ import static com.dbms.utils.Helpers.writeLevel;
 
 import com.dbms.utils.Attribute;
 import com.dbms.utils.Catalog;
+import com.dbms.utils.KeySort;
 import com.dbms.utils.Schema;
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import com.dbms.utils.TupleReader;
 import com.dbms.utils.TupleWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
-import java.util.AbstractMap;
-import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.PriorityQueue;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.select.OrderByElement;
 
@@ -27,14 +34,40 @@ import net.sf.jsqlparser.statement.select.OrderByElement;
  * opens a reader to the sorted scratch file.
  *
  * The algorithm first performs an initial pass over the data, creating sorted runs of B pages.
+ * Runs are sorted and written by a pool of worker threads while the next runs are read, or
+ * generated by replacement selection, which gives runs of about 2B pages.
  *
  * It then performs merge passes until there is one scratch file remaining.
  *
- * For each merge pass: opens readers on B - 1 previous runs performs a merge sort between them by
- * buffering one tuple from each reader writes smallest of these tuples to an output file using the
- * remaining buffer */
+ * For each merge pass: opens readers on up to B - 1 previous runs performs a merge sort between
+ * them by buffering one tuple from each reader writes smallest of these tuples to an output file
+ * using the remaining buffer. With enough buffer pages, fewer runs are merged at once so that each
+ * run is read in blocks of several pages. The smallest tuple is found with a loser tree, so each output tuple costs one
+ * comparison per level of the tree. The merges of a pass are independent and run concurrently, and
+ * the final pass can be split into key ranges that are merged concurrently.
+ *
+ * Input that fits on the buffer pages is sorted in memory without writing any run. Otherwise the
+ * final merge is not written, but streamed to {@code getNextTuple}; the most recent tuples are kept
+ * on the page the merge output would use, to serve {@code reset(int)}. If the consumer resets
+ * further back, as a sort merge join does, it calls {@code retainOutput} first, and the tuples
+ * leaving that page are written to a file. A reset beyond the page writes the rest of the output
+ * to that file, which is then read like a written final merge, so the merge is never restarted
+ * more than once. */
 public class ExternalSortOperator extends PhysicalOperator {
 
+    /** Background threads sorting and writing runs, shared by all sorts */
+    private static final ExecutorService SORTERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "sorter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Largest number of tuples a run buffer is allocated for before it grows */
+    private static final int INITIAL_RUN_CAPACITY = 1 << 16;
+
+    /** Number of pages per block that merges read their runs in when their buffer pages allow it */
+    private static final int MIN_BLOCK_PAGES = 2;
+
     /** {@code child} is the child operator for external sort */
     public PhysicalOperator child;
 
@@ -59,8 +92,60 @@ public class ExternalSortOperator extends PhysicalOperator {
     /** Number of merges/runs created in the previous pass */
     private int mergeLen;
 
-    /** Reader for the final sorted merge */
-    private TupleReader sortedReader;
+    /** Number of runs created by the initial pass */
+    int initialRuns;
+
+    /** Number of pages per block the most recently started merge reads its runs in */
+    volatile int blockPages;
+
+    /** Number of tuples in each run of the previous pass */
+    private List<Integer> runSizes = new ArrayList<>();
+
+    /** Readers for the partitions of the final sorted merge in order, null if there are no
+     * tuples; a single partition unless the final merge was range-partitioned */
+    private TupleReader[] sortedReaders;
+
+    /** Index in the sorted output of the first tuple of each partition */
+    int[] partitionStarts;
+
+    /** Partition of the next tuple read */
+    private int partition;
+
+    /** Most recent rows of the sorted output, stored row-major at their index modulo windowRows;
+     * the whole output if it was sorted in memory. Null if the output is read from sortedReaders. */
+    private int[] window;
+
+    /** Number of rows the window holds */
+    private int windowRows;
+
+    /** Number of tuples of the sorted output that have been produced */
+    private int produced;
+
+    /** Index in the sorted output of the next tuple returned */
+    private int position;
+
+    /** Runs of the final merge, null if there is none */
+    private RunCursor[] finalRuns;
+
+    /** Loser tree of the final merge, null if there is none */
+    private LoserTree finalTree;
+
+    /** True if the tuples leaving the window are written to the spill file */
+    private boolean retained;
+
+    /** True if the streamed final merge was closed before it produced the whole sorted output, so
+     * the next reset opens it again */
+    private boolean mergeClosed;
+
+    /** Writer of the tuples of the streamed final merge that left the window, in order; null if
+     * none left it */
+    private TupleWriter spill;
+
+    /** Batch of the child being read into runs, null if none */
+    private TupleBatch input;
+
+    /** Index in the selection of input of the next row to read */
+    private int inputPos;
 
     /** {@code orderBys} is an ordered-list of columns to sort by */
     List<OrderByElement> orderBys;
@@ -77,20 +162,30 @@ public class ExternalSortOperator extends PhysicalOperator {
         this.child = child;
         this.pages = pages;
         numAttributes = schema.size();
-        tuplesPerRun = pages * 4096 / numAttributes * 4;
+        tuplesPerRun = pages * Catalog.BUFFER_PAGE_SIZE / (4 * numAttributes);
         tc = new TupleComparator(orderBys, schema);
         Catalog.createTempSubDir(id);
         initialPass();
         mergePasses();
     }
 
-    /** @return Tuple at index in table */
+    /** The returned Tuple owns its data, since callers such as sort merge joins keep it; bulk
+     * consumers read the sorted output with {@code getNextBatch}, which does not allocate per row.
+     *
+     * @return next Tuple of the sorted output */
     @Override
     public Tuple getNextTuple() {
         try {
-            if (sortedReader == null) return null;
-            List<Integer> nextVal = sortedReader.nextTuple();
-            if (nextVal == null) return null;
+            if (window != null) {
+                int offset = nextWindowRow();
+                return offset < 0 ? null : new Tuple(schema, Arrays.copyOfRange(window, offset, offset + numAttributes));
+            }
+            if (sortedReaders == null) return null;
+            int[] nextVal = new int[numAttributes];
+            while (!sortedReaders[partition].nextTuple(nextVal)) {
+                if (partition == sortedReaders.length - 1) return null;
+                partition++;
+            }
             return new Tuple(schema, nextVal);
         } catch (IOException e) {
             e.printStackTrace();
@@ -98,20 +193,128 @@ public class ExternalSortOperator extends PhysicalOperator {
         return null;
     }
 
+    /** Copies the next rows of the sorted output straight from the window or the sorted readers
+     * into this operator's batch.
+     *
+     * @return next batch of the sorted output, null if none are left */
+    @Override
+    public TupleBatch getNextBatch() {
+        try {
+            TupleBatch b = emptyBatch();
+            if (window != null) {
+                int offset;
+                while (b.size < b.capacity() && (offset = nextWindowRow()) >= 0) {
+                    System.arraycopy(window, offset, b.data, b.size++ * numAttributes, numAttributes);
+                }
+            } else if (sortedReaders != null) {
+                while ((b.size = sortedReaders[partition].nextTuples(b.data, b.capacity())) == 0
+                        && partition < sortedReaders.length - 1) {
+                    partition++;
+                }
+            }
+            b.selectAll();
+            return b.count == 0 ? null : b;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /** @return offset in the window of the next row of the sorted output, from the window if it
+     *         was already produced or else from the final merge; -1 if there are no rows left
+     * @throws IOException */
+    private int nextWindowRow() throws IOException {
+        if (position < produced) return position++ % windowRows * numAttributes;
+        if (finalTree == null) return -1;
+        RunCursor min = finalTree.min();
+        if (min == null) {
+            closeFinalMerge();
+            return -1;
+        }
+        int offset = produced % windowRows * numAttributes;
+        if (retained && produced >= windowRows) {
+            if (spill == null) spill = runWriter(path(mergePass, 0));
+            spill.writeTuple(window, offset, numAttributes);
+        }
+        produced++;
+        System.arraycopy(min.row, 0, window, offset, numAttributes);
+        min.advance();
+        finalTree.replay();
+        position++;
+        return offset;
+    }
+
     /** resets internal buffer index */
     @Override
     public void reset() {
+        if (window != null) {
+            reset(0);
+            return;
+        }
+        try {
+            if (sortedReaders == null) return;
+            for (int p = 0; p <= partition; p++) sortedReaders[p].reset();
+            partition = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Closes the readers of the sorted output and of the final merge, and the child. A final
+     * merge closed before its end is opened again by the next reset; one that finished writes its
+     * retained tuples out, so resets after the close still seek. */
+    @Override
+    public void close() {
+        child.close();
         try {
-            if (sortedReader != null) sortedReader.reset();
+            if (finalTree != null) {
+                closeFinalMerge();
+                mergeClosed = true;
+                if (spill != null) spill.close();
+                spill = null;
+            } else if (spill != null) {
+                materialize();
+            }
+            if (sortedReaders != null) {
+                for (TupleReader reader : sortedReaders) reader.close();
+                partition = sortedReaders.length - 1;
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
+        position = produced;
+    }
+
+    /** Keeps the tuples of a streamed final merge that leave the window, so that any later
+     * {@code reset(int)} seeks instead of restarting the merge. Called by consumers that reset
+     * further back than one page before reading the first tuple; it has no effect once tuples
+     * have left the window. */
+    public void retainOutput() {
+        if (finalTree != null && produced <= windowRows) retained = true;
     }
 
     /** @param index is the block in memory to reset back to */
     public void reset(int index) {
         try {
-            if (sortedReader != null) sortedReader.reset(index);
+            if (window != null && mergeClosed) {
+                mergeClosed = false;
+                openFinalMerge();
+            }
+            if (window != null && index < produced - windowRows) materialize();
+            if (window != null) {
+                if (index > produced) {
+                    position = produced;
+                    while (produced < index && nextWindowRow() >= 0) {}
+                }
+                position = index;
+                return;
+            }
+            if (sortedReaders == null) return;
+            int p = 0;
+            while (p + 1 < partitionStarts.length && partitionStarts[p + 1] <= index) p++;
+            for (int q = p + 1; q <= partition; q++) sortedReaders[q].reset();
+            sortedReaders[p].reset(index - partitionStarts[p]);
+            partition = p;
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -124,90 +327,683 @@ public class ExternalSortOperator extends PhysicalOperator {
         return Catalog.pathToTempFile(id + File.separator + pass + "_" + num);
     }
 
-    /** Executes all merge passes until single file remaining, and opens a reader on this file
+    /** @param path path of the run file
+     * @return writer for a run file, in the page size and compression configured for sort runs
+     * @throws IOException */
+    private static TupleWriter runWriter(String path) throws IOException {
+        return new TupleWriter(path, Catalog.WRITE_BEHIND_PAGES, Catalog.BUFFER_PAGE_SIZE, Catalog.COMPRESS_RUNS);
+    }
+
+    /** @param share number of buffer pages of a merge, one of which buffers its output
+     * @return number of runs the merge merges at most: as many as leave blocks of
+     *         {@code MIN_BLOCK_PAGES} pages for every run and the forecast block, if that is at
+     *         least 2 runs, and otherwise one per input page */
+    private static int fanIn(int share) {
+        int runs = (share - 1) / MIN_BLOCK_PAGES - 1;
+        return runs >= 2 ? runs : share - 1;
+    }
+
+    /** Executes merge passes until at most {@code fanIn(B)} runs remain, then prepares the final merge: it is
+     * range-partitioned if {@code Catalog.PARTITIONED_MERGE} is set, and otherwise streamed. A
+     * single remaining run is read directly.
      *
      * @throws IOException */
     private void mergePasses() throws IOException {
-        while (mergeLen > 1) {
-            int count = 0;
-            for (int i = 0; i < mergeLen; i += pages - 1) {
-                executeMerge(count, i);
-                count++;
+        while (mergeLen > fanIn(pages)) executeMergePass();
+        if (mergeLen > 1 && Catalog.PARTITIONED_MERGE && Catalog.SORT_WORKERS > 1) {
+            partitionedMerge(Catalog.SORT_WORKERS);
+        } else if (mergeLen > 1) {
+            windowRows = Math.max(1, Catalog.BUFFER_PAGE_SIZE / (4 * numAttributes));
+            window = new int[windowRows * numAttributes];
+            openFinalMerge();
+        } else if (mergeLen == 1) {
+            sortedReaders =
+                    new TupleReader[] {new TupleReader(path(mergePass - 1, 0), false, Catalog.READ_AHEAD_PAGES)};
+            partitionStarts = new int[] {0};
+        }
+    }
+
+    /** Opens the runs of the final merge at their first tuples, closing them first if they were
+     * open, so the sorted output is produced again from its start.
+     *
+     * @throws IOException */
+    private void openFinalMerge() throws IOException {
+        closeFinalMerge();
+        finalRuns = new RunCursor[mergeLen];
+        for (int r = 0; r < mergeLen; r++) {
+            finalRuns[r] = new RunCursor(new TupleReader(path(mergePass - 1, r)), runSizes.get(r));
+        }
+        new RunPrefetcher(finalRuns, pages - 1);
+        for (RunCursor cursor : finalRuns) cursor.advance();
+        finalTree = new LoserTree(finalRuns);
+        produced = 0;
+        position = 0;
+    }
+
+    /** Writes the rest of the streamed final merge after the tuples retained so far, restarting
+     * the merge first if tuples left the window unretained, and reads the sorted output from the
+     * written file from then on.
+     *
+     * @throws IOException */
+    private void materialize() throws IOException {
+        if (!retained) {
+            if (spill != null) spill.close();
+            spill = null;
+            openFinalMerge();
+            retained = true;
+        }
+        while (nextWindowRow() >= 0) {}
+        if (spill == null) spill = runWriter(path(mergePass, 0));
+        for (int i = Math.max(0, produced - windowRows); i < produced; i++) {
+            spill.writeTuple(window, i % windowRows * numAttributes, numAttributes);
+        }
+        spill.close();
+        spill = null;
+        retained = false;
+        window = null;
+        sortedReaders =
+                new TupleReader[] {new TupleReader(path(mergePass, 0), false, Catalog.READ_AHEAD_PAGES)};
+        partitionStarts = new int[] {0};
+        partition = 0;
+    }
+
+    /** Closes the readers of the runs of the final merge, if any
+     *
+     * @throws IOException */
+    private void closeFinalMerge() throws IOException {
+        if (finalRuns == null) return;
+        for (RunCursor cursor : finalRuns) cursor.reader.close();
+        finalRuns = null;
+        finalTree = null;
+    }
+
+    /** Merges groups of runs of the previous pass into runs of this pass. Groups are independent,
+     * so up to {@code Catalog.SORT_WORKERS} of them are merged at once on the sorting threads. The
+     * B buffer pages are shared by the concurrent merges, and each merges as many runs as
+     * {@code fanIn} allows for its share of the pages, so a pass never uses more than B pages.
+     *
+     * @throws IOException */
+    private void executeMergePass() throws IOException {
+        int groups = (mergeLen + fanIn(pages) - 1) / fanIn(pages);
+        int workers = Math.max(1, Math.min(Math.min(Catalog.SORT_WORKERS, groups), pages / 3));
+        int share = pages / workers;
+        int runs = fanIn(share);
+        Deque<Future<?>> inFlight = new ArrayDeque<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < mergeLen; i += runs) {
+            int stop = Math.min(i + runs, mergeLen);
+            int size = 0;
+            for (int j = i; j < stop; j++) size += runSizes.get(j);
+            sizes.add(size);
+            int pass = mergePass;
+            int num = sizes.size() - 1;
+            int start = i;
+            if (workers == 1) {
+                executeMerge(pass, num, start, stop, share);
+                continue;
             }
-            mergePass++;
-            mergeLen = count;
+            if (inFlight.size() == workers) await(inFlight.poll());
+            inFlight.add(SORTERS.submit(() -> {
+                executeMerge(pass, num, start, stop, share);
+                return null;
+            }));
         }
-        sortedReader = mergeLen > 0 ? new TupleReader(path(mergePass - 1, 0)) : null;
+        while (!inFlight.isEmpty()) await(inFlight.poll());
+        mergePass++;
+        mergeLen = sizes.size();
+        runSizes = sizes;
     }
 
-    /** @param mergeNum the number of merge in the current pass
+    /** @param pass      the index of the merge pass
+     * @param mergeNum  the number of merge in the pass
      * @param prevStart the number of merge in the previous pass from which to start the merge
+     * @param prevStop  the number of merge in the previous pass at which to stop the merge
+     * @param share     number of buffer pages of the merge
      * @throws IOException */
-    private void executeMerge(int mergeNum, int prevStart) throws IOException {
-        TupleWriter tw = new TupleWriter(path(mergePass, mergeNum));
-        PriorityQueue<Map.Entry<TupleReader, Tuple>> queue = new PriorityQueue<>(Map.Entry.comparingByValue(tc));
-        int stop = Math.min(prevStart + pages - 1, mergeLen);
-        for (int j = prevStart; j < stop; j++) {
-            TupleReader tr = new TupleReader(path(mergePass - 1, j));
-            Tuple tp = new Tuple(schema, tr.nextTuple());
-            queue.offer(new AbstractMap.SimpleEntry<>(tr, tp));
-        }
-        while (queue.size() > 0) {
-            Entry<TupleReader, Tuple> minEntry = queue.poll();
-            TupleReader minTr = minEntry.getKey();
-            Tuple minTp = minEntry.getValue();
-            tw.writeTuple(minTp);
-            List<Integer> nextVal = minTr.nextTuple();
-            if (nextVal != null) {
-                Tuple next = new Tuple(schema, nextVal);
-                queue.offer(new AbstractMap.SimpleEntry<>(minTr, next));
+    private void executeMerge(int pass, int mergeNum, int prevStart, int prevStop, int share) throws IOException {
+        RunCursor[] cursors = new RunCursor[prevStop - prevStart];
+        for (int j = prevStart; j < prevStop; j++) {
+            cursors[j - prevStart] = new RunCursor(new TupleReader(path(pass - 1, j)), runSizes.get(j));
+        }
+        merge(path(pass, mergeNum), cursors, share - 1);
+    }
+
+    /** Merges the final runs on several threads. Sampled tuples of the runs split the sort order
+     * into key ranges of about equal size, and the part of every run in each range is merged into
+     * a partition of the output, so the partitions read in order are the sorted output. Every
+     * range merges all of the runs, so only as many ranges as have a page per run and one for
+     * their output within the B buffer pages are merged at once.
+     *
+     * @param parts number of partitions
+     * @throws IOException */
+    private void partitionedMerge(int parts) throws IOException {
+        List<int[]> splitters = sampleSplitters(parts);
+        int[][] bounds = new int[parts + 1][mergeLen];
+        for (int r = 0; r < mergeLen; r++) {
+            TupleReader reader = new TupleReader(path(mergePass - 1, r));
+            for (int p = 1; p < parts; p++) bounds[p][r] = lowerBound(reader, runSizes.get(r), splitters.get(p - 1));
+            bounds[parts][r] = runSizes.get(r);
+            reader.close();
+        }
+
+        int workers = Math.max(1, Math.min(parts, pages / (mergeLen + 1)));
+        int share = pages / workers;
+        Deque<Future<?>> inFlight = new ArrayDeque<>();
+        partitionStarts = new int[parts];
+        for (int p = 0; p < parts; p++) {
+            int part = p;
+            int size = 0;
+            for (int r = 0; r < mergeLen; r++) size += bounds[p + 1][r] - bounds[p][r];
+            if (p + 1 < parts) partitionStarts[p + 1] = partitionStarts[p] + size;
+            if (inFlight.size() == workers) await(inFlight.poll());
+            inFlight.add(SORTERS.submit(() -> {
+                mergePartition(part, bounds, share);
+                return null;
+            }));
+        }
+        while (!inFlight.isEmpty()) await(inFlight.poll());
+
+        sortedReaders = new TupleReader[parts];
+        for (int p = 0; p < parts; p++) {
+            sortedReaders[p] = new TupleReader(path(mergePass, p), false, Catalog.READ_AHEAD_PAGES);
+        }
+        mergePass++;
+        mergeLen = 1;
+    }
+
+    /** Merges the part of every final run in a key range into a partition of the output.
+     *
+     * @param part   partition of the output
+     * @param bounds for each partition boundary, the index in each run of its first tuple in the
+     *               partition
+     * @param share  number of buffer pages of the merge
+     * @throws IOException */
+    private void mergePartition(int part, int[][] bounds, int share) throws IOException {
+        List<RunCursor> cursors = new ArrayList<>();
+        for (int r = 0; r < mergeLen; r++) {
+            int start = bounds[part][r];
+            int count = bounds[part + 1][r] - start;
+            if (count == 0) continue;
+            TupleReader reader = new TupleReader(path(mergePass - 1, r));
+            reader.reset(start);
+            cursors.add(new RunCursor(reader, count));
+        }
+        merge(path(mergePass, part), cursors.toArray(new RunCursor[0]), share - 1);
+    }
+
+    /** @param parts number of partitions
+     * @return parts - 1 tuples of the runs of the previous pass, in sorted order, that split them
+     *         into ranges of about equal size
+     * @throws IOException */
+    private List<int[]> sampleSplitters(int parts) throws IOException {
+        int total = 0;
+        for (int size : runSizes) total += size;
+        int step = Math.max(1, total / (parts * 32));
+        List<int[]> samples = new ArrayList<>();
+        for (int r = 0; r < mergeLen; r++) {
+            TupleReader reader = new TupleReader(path(mergePass - 1, r));
+            for (int i = 0; i < runSizes.get(r); i += step) {
+                int[] row = new int[numAttributes];
+                reader.reset(i);
+                if (reader.nextTuple(row)) samples.add(row);
+            }
+            reader.close();
+        }
+        samples.sort(tc::compare);
+        List<int[]> splitters = new ArrayList<>(parts - 1);
+        for (int p = 1; p < parts; p++) splitters.add(samples.get(p * samples.size() / parts));
+        return splitters;
+    }
+
+    /** @param reader reader of a run
+     * @param size   number of tuples in the run
+     * @param key    tuple to search for
+     * @return index of the first tuple of the run that is not smaller than key, size if none
+     * @throws IOException */
+    private int lowerBound(TupleReader reader, int size, int[] key) throws IOException {
+        int[] row = new int[numAttributes];
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            reader.reset(mid);
+            reader.nextTuple(row);
+            if (tc.compare(row, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
         }
+        return lo;
+    }
+
+    /** Merges runs into a new run file, then closes their readers
+     *
+     * @param path       path of the output run
+     * @param cursors    runs to merge, positioned at their first tuple to merge
+     * @param inputPages number of buffer pages for the runs
+     * @throws IOException */
+    private void merge(String path, RunCursor[] cursors, int inputPages) throws IOException {
+        TupleWriter tw = runWriter(path);
+        new RunPrefetcher(cursors, inputPages);
+        for (RunCursor cursor : cursors) cursor.advance();
+        LoserTree tree = new LoserTree(cursors);
+        RunCursor min;
+        while ((min = tree.min()) != null) {
+            tw.writeTuple(min.row);
+            min.advance();
+            tree.replay();
+        }
         tw.close();
+        for (RunCursor cursor : cursors) cursor.reader.close();
     }
 
-    /** Reads all of child tuples and creates sorted runs
+    /** Reads all of child tuples and creates sorted runs, by replacement selection if
+     * {@code Catalog.REPLACEMENT_SELECTION} is set. If the child's tuples fit on the buffer pages,
+     * they are sorted into the window instead, and no run is written.
      *
      * @throws IOException */
     private void initialPass() throws IOException {
-        int run = 0;
-        boolean isNextRun;
-        do {
-            Boolean result = executeRun(run);
-            if (result == null) break;
-            isNextRun = result;
-            run++;
-        } while (isNextRun);
         mergePass = 1;
-        mergeLen = run;
+        RunBuffer first = readRun();
+        if (first != null && first.size < tuplesPerRun) {
+            int[] order = sortRun(first);
+            windowRows = first.size;
+            window = new int[windowRows * numAttributes];
+            for (int j = 0; j < windowRows; j++) {
+                System.arraycopy(first.data, order[j] * numAttributes, window, j * numAttributes, numAttributes);
+            }
+            produced = windowRows;
+            initialRuns = 1;
+            return;
+        }
+        if (Catalog.REPLACEMENT_SELECTION) {
+            replacementSelection(first);
+        } else {
+            sortRuns(first);
+        }
+        mergeLen = initialRuns;
+    }
+
+    /** Creates runs by sorting each run of tuples that fit on all buffer pages. This thread reads the runs from the
+     * child, and up to {@code Catalog.SORT_WORKERS} runs are sorted and written concurrently, so
+     * that many runs plus the one being read are held in memory: {@code Catalog.SORT_WORKERS + 1}
+     * times the buffer pages, which is why a single worker is the default.
+     *
+     * @param first first run read from the child, null if the child has no tuples
+     * @throws IOException */
+    private void sortRuns(RunBuffer first) throws IOException {
+        Deque<Future<?>> inFlight = new ArrayDeque<>();
+        int run = 0;
+        for (RunBuffer runTuples = first; runTuples != null; runTuples = readRun()) {
+            int num = run++;
+            RunBuffer tuples = runTuples;
+            runSizes.add(tuples.size);
+            if (Catalog.SORT_WORKERS <= 1) {
+                writeRun(num, tuples);
+                continue;
+            }
+            if (inFlight.size() == Catalog.SORT_WORKERS) await(inFlight.poll());
+            inFlight.add(SORTERS.submit(() -> {
+                writeRun(num, tuples);
+                return null;
+            }));
+        }
+        while (!inFlight.isEmpty()) await(inFlight.poll());
+        initialRuns = run;
     }
 
-    /** Executes a run by getting up to the available number buffer pages amount of tuples from the
-     * child, sorting them, and writing to a run file
+    /** Creates runs by replacement selection. A heap holds as many tuples as fit on all buffer
+     * pages; the smallest is written to the current run and replaced by the next child tuple,
+     * which joins the next run if it is smaller than the tuple just written. Runs average twice
+     * the buffer pages on random input, and sorted input becomes a single run. Every heap entry
+     * holds its own Tuple, so unlike sorted runs this allocates per tuple.
      *
-     * @param i run number
-     * @return true if there are more child tuples for a next run, null if this did not write
-     *         anything
+     * @param first first run read from the child, the initial contents of the heap; null if the
+     *              child has no tuples
      * @throws IOException */
-    private Boolean executeRun(int i) throws IOException {
-        boolean tuplesRemaining = true;
-        List<Tuple> runTuples = new LinkedList<>();
-        for (int j = 0; j < tuplesPerRun; j++) {
-            Tuple next = child.getNextTuple();
-            if (next == null) {
-                tuplesRemaining = false;
-                break;
+    private void replacementSelection(RunBuffer first) throws IOException {
+        PriorityQueue<HeapEntry> heap = new PriorityQueue<>(
+                Math.min(tuplesPerRun, INITIAL_RUN_CAPACITY),
+                (e1, e2) -> e1.run != e2.run ? Integer.compare(e1.run, e2.run) : tc.compare(e1.tuple, e2.tuple));
+        if (first != null) {
+            for (int j = 0; j < first.size; j++) {
+                int[] row = Arrays.copyOfRange(first.data, j * numAttributes, (j + 1) * numAttributes);
+                heap.offer(new HeapEntry(0, new Tuple(schema, row)));
+            }
+        }
+        int[] next = new int[numAttributes];
+        int run = 0;
+        int size = 0;
+        TupleWriter tw = heap.isEmpty() ? null : runWriter(path(0, 0));
+        while (!heap.isEmpty()) {
+            HeapEntry min = heap.poll();
+            if (min.run != run) {
+                tw.close();
+                runSizes.add(size);
+                run = min.run;
+                size = 0;
+                tw = runWriter(path(0, run));
+            }
+            tw.writeTuple(min.tuple);
+            size++;
+            if (readChildRow(next, 0)) {
+                Tuple t = new Tuple(schema, next);
+                heap.offer(new HeapEntry(tc.compare(t, min.tuple) >= 0 ? run : run + 1, t));
+                next = new int[numAttributes];
             }
-            runTuples.add(next);
         }
-        if (runTuples.size() == 0) return null;
-        TupleWriter tw = new TupleWriter(path(0, i));
-        Collections.sort(runTuples, tc);
-        for (Tuple t : runTuples) {
-            tw.writeTuple(t);
+        if (tw != null) {
+            tw.close();
+            runSizes.add(size);
+        }
+        initialRuns = tw != null ? run + 1 : 0;
+    }
+
+    /** A tuple in the replacement selection heap, with the run it belongs to */
+    private static class HeapEntry {
+        /** Run the tuple is written to */
+        final int run;
+
+        /** Tuple of the child */
+        final Tuple tuple;
+
+        HeapEntry(int run, Tuple tuple) {
+            this.run = run;
+            this.tuple = tuple;
+        }
+    }
+
+    /** Rows of a run read from the child, stored row-major in one array */
+    private static class RunBuffer {
+        /** Values of the rows */
+        int[] data;
+
+        /** Number of rows */
+        int size;
+
+        /** @param length initial length of data */
+        RunBuffer(int length) {
+            data = new int[length];
+        }
+    }
+
+    /** Copies the next row of the child into data. The child is read in batches, so rows are
+     * copied straight from the child's batch without allocating per row.
+     *
+     * @param data   destination of the row
+     * @param offset position in data of the row's first value
+     * @return true if a row was copied, false if the child has no rows left */
+    private boolean readChildRow(int[] data, int offset) {
+        if (input == null || inputPos == input.count) {
+            input = child.getNextBatch();
+            inputPos = 0;
+            if (input == null) return false;
+        }
+        System.arraycopy(input.data, input.selection[inputPos++] * numAttributes, data, offset, numAttributes);
+        return true;
+    }
+
+    /** @return up to the number of tuples that fit on all buffer pages from the child, null if
+     *         the child has no tuples left */
+    private RunBuffer readRun() {
+        RunBuffer run = new RunBuffer(Math.min(tuplesPerRun, INITIAL_RUN_CAPACITY) * numAttributes);
+        while (run.size < tuplesPerRun) {
+            int offset = run.size * numAttributes;
+            if (offset == run.data.length) {
+                run.data = Arrays.copyOf(run.data, Math.min(2 * offset, tuplesPerRun * numAttributes));
+            }
+            if (!readChildRow(run.data, offset)) break;
+            run.size++;
+        }
+        return run.size == 0 ? null : run;
+    }
+
+    /** Sorts the tuples of a run and writes them to a run file
+     *
+     * @param i   run number
+     * @param run tuples of the run
+     * @throws IOException */
+    private void writeRun(int i, RunBuffer run) throws IOException {
+        TupleWriter tw = runWriter(path(0, i));
+        for (int position : sortRun(run)) {
+            tw.writeTuple(run.data, position * numAttributes, numAttributes);
         }
         tw.close();
-        return tuplesRemaining;
+    }
+
+    /** Sorts the tuples of a run. The first two sort columns of each tuple are packed into a
+     * primitive key that is radix sorted with the tuple's position, and tuples are only compared in
+     * full within ranges of equal keys.
+     *
+     * @param run tuples of the run
+     * @return positions in the run of its tuples in sorted order */
+    private int[] sortRun(RunBuffer run) {
+        int n = run.size;
+        int[] data = run.data;
+        long[] keys = new long[n];
+        int[] positions = new int[n];
+        for (int j = 0; j < n; j++) {
+            keys[j] = tc.prefix(data, j * numAttributes);
+            positions[j] = j;
+        }
+        KeySort.radixSort(keys, positions, n);
+        if (tc.prefixTies()) {
+            for (int start = 0, end; start < n; start = end) {
+                end = start + 1;
+                while (end < n && keys[end] == keys[start]) end++;
+                if (end - start > 1) sortTies(data, positions, start, end);
+            }
+        }
+        return positions;
+    }
+
+    /** Sorts a range of run positions whose tuples have equal prefixes by comparing the tuples in
+     * full; the sort is stable.
+     *
+     * @param data      rows of the run
+     * @param positions positions of the run's tuples
+     * @param start     first index of the range
+     * @param end       index after the range */
+    private void sortTies(int[] data, int[] positions, int start, int end) {
+        Integer[] range = new Integer[end - start];
+        for (int j = start; j < end; j++) range[j - start] = positions[j];
+        Arrays.sort(range, (a, b) -> tc.compare(data, a * numAttributes, data, b * numAttributes));
+        for (int j = start; j < end; j++) positions[j] = range[j - start];
+    }
+
+    /** Waits for a run to be sorted and written
+     *
+     * @param run pending result of writeRun
+     * @throws IOException if writing the run failed */
+    private static void await(Future<?> run) throws IOException {
+        try {
+            run.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** The current position in a run during a merge. The row array is reused for every tuple of
+     * the run, so merging does not allocate per tuple. */
+    private class RunCursor {
+        /** Reader for the run file */
+        final TupleReader reader;
+
+        /** Data of the current tuple of the run */
+        final int[] row = new int[numAttributes];
+
+        /** Number of tuples of the run left to merge */
+        int remaining;
+
+        /** True once the run has no tuples left */
+        boolean exhausted;
+
+        /** Plans the reads of the run, null if the run is read on demand */
+        RunPrefetcher prefetcher;
+
+        /** Page of the reader that the current tuple is on, -1 before the first tuple */
+        int page = -1;
+
+        /** Last page of the block of pages the current page belongs to */
+        int blockEnd = -1;
+
+        /** Last page requested from the buffer pool */
+        int requested = -1;
+
+        /** Last tuple of the current page */
+        final int[] pageLast = new int[numAttributes];
+
+        /** @param reader    reader positioned at the first tuple to merge
+         * @param remaining number of tuples to merge */
+        RunCursor(TupleReader reader, int remaining) {
+            this.reader = reader;
+            this.remaining = remaining;
+        }
+
+        /** Reads the next tuple of the run into row, or marks the run exhausted.
+         *
+         * @throws IOException */
+        void advance() throws IOException {
+            exhausted = remaining-- <= 0 || !reader.nextTuple(row);
+            if (prefetcher == null) return;
+            if (exhausted) {
+                prefetcher.runExhausted(this);
+            } else if (reader.pageId != page) {
+                page = reader.pageId;
+                reader.lastTupleOfPage(pageLast);
+                prefetcher.pageEntered(this);
+            }
+        }
+    }
+
+    /** Plans the reads of the runs of a merge. Each run is read in blocks of pages that are
+     * requested from the buffer pool together when the run enters them, and one more block is
+     * requested ahead for the run forecast to finish its block first: the run on the last page of
+     * its block whose last tuple is smallest. Requested pages stay pinned until the run moves past
+     * them, so the input buffer pages hold one block per run plus the forecast block, and the next
+     * block a merge needs is usually read in the background and not evicted before it is used. */
+    private class RunPrefetcher {
+        /** Runs of the merge */
+        final RunCursor[] runs;
+
+        /** Number of pages per block */
+        final int blockPages;
+
+        /** Run whose next block was requested ahead, null if none */
+        RunCursor forecast;
+
+        /** @param runs       runs of the merge, before their first tuples are read
+         * @param inputPages number of buffer pages for the runs */
+        RunPrefetcher(RunCursor[] runs, int inputPages) {
+            this.runs = runs;
+            blockPages = Math.max(1, inputPages / (runs.length + 1));
+            ExternalSortOperator.this.blockPages = blockPages;
+            for (RunCursor run : runs) run.prefetcher = this;
+        }
+
+        /** Requests the block a run entered if it was not requested ahead, and forecasts the next
+         * block to request if none is requested ahead.
+         *
+         * @param run run that read the first tuple of a page */
+        void pageEntered(RunCursor run) {
+            if (run.page > run.blockEnd) {
+                run.blockEnd = run.page + blockPages - 1;
+                if (run.requested < run.blockEnd) {
+                    run.reader.prefetchThrough(run.blockEnd);
+                    run.requested = run.blockEnd;
+                }
+                if (run == forecast) forecast = null;
+            }
+            if (forecast == null) forecastNext();
+        }
+
+        /** @param run run that has no tuples left */
+        void runExhausted(RunCursor run) {
+            if (run != forecast) return;
+            forecast = null;
+            forecastNext();
+        }
+
+        /** Requests the block after the current block of the run forecast to finish its block first */
+        private void forecastNext() {
+            for (RunCursor run : runs) {
+                if (run.exhausted || run.page < 0 || run.page != run.blockEnd) continue;
+                if (run.blockEnd + 1 >= run.reader.getNumPages()) continue;
+                if (forecast == null || tc.compare(run.pageLast, forecast.pageLast) < 0) forecast = run;
+            }
+            if (forecast == null) return;
+            forecast.requested = forecast.blockEnd + blockPages;
+            forecast.reader.prefetchThrough(forecast.requested);
+        }
+    }
+
+    /** A tournament tree of losers over the current tuples of the runs of a merge. Each internal
+     * node holds the run that lost the match played there, and the overall winner is kept apart,
+     * so after the winner's run advances, only the matches on its path to the root are replayed,
+     * with one comparison of primitive rows per level. Exhausted runs lose every match. */
+    private class LoserTree {
+        /** Runs being merged, the leaves of the tree */
+        final RunCursor[] runs;
+
+        /** Winner in slot 0, and the loser of the match at internal node i in slot i; the leaf of
+         * run r is node {@code runs.length + r} */
+        final int[] tree;
+
+        LoserTree(RunCursor[] runs) {
+            this.runs = runs;
+            tree = new int[Math.max(1, runs.length)];
+            tree[0] = runs.length > 1 ? play(1) : 0;
+        }
+
+        /** Plays the matches of the subtree of a node.
+         *
+         * @param node node of the tree
+         * @return run that wins the subtree */
+        private int play(int node) {
+            if (node >= runs.length) return node - runs.length;
+            int a = play(2 * node);
+            int b = play(2 * node + 1);
+            if (beats(a, b)) {
+                tree[node] = b;
+                return a;
+            }
+            tree[node] = a;
+            return b;
+        }
+
+        /** @param a run
+         * @param b run
+         * @return true if the current tuple of run a is merged before that of run b */
+        private boolean beats(int a, int b) {
+            if (runs[b].exhausted) return !runs[a].exhausted || a < b;
+            if (runs[a].exhausted) return false;
+            int comp = tc.compare(runs[a].row, runs[b].row);
+            return comp < 0 || comp == 0 && a < b;
+        }
+
+        /** @return run with the smallest current tuple, null if all runs are exhausted */
+        RunCursor min() {
+            RunCursor winner = runs.length > 0 ? runs[tree[0]] : null;
+            return winner == null || winner.exhausted ? null : winner;
+        }
+
+        /** Replays the matches on the path of the previous winner after its run advanced */
+        void replay() {
+            int winner = tree[0];
+            for (int node = (winner + runs.length) >> 1; node > 0; node >>= 1) {
+                if (beats(tree[node], winner)) {
+                    int loser = winner;
+                    winner = tree[node];
+                    tree[node] = loser;
+                }
+            }
+            tree[0] = winner;
+        }
     }
 
     @Override
@@ -222,15 +1018,16 @@ public class ExternalSortOperator extends PhysicalOperator {
  * column ordering. */
 class TupleComparator implements Comparator<Tuple> {
 
-    /** {@code tableColumnNames} is an ordered list of {@code ColumnName} objects that contain
-     * the columns to sort by */
-    private List<Attribute> sortOrder;
+    /** Positions in the tuple schema of the columns to sort by, in order of sorting */
+    private int[] sortOrder;
 
     /** @param orderBys is the ordered list of columns to sort by
      * @param schema {@code Schema} object representing the schema of our db
      * @param rep      is a representative child tuple */
     public TupleComparator(List<OrderByElement> orderBys, Schema s) {
-        sortOrder = getSortOrder(orderBys, s);
+        List<Attribute> attributes = getSortOrder(orderBys, s);
+        sortOrder = new int[attributes.size()];
+        for (int i = 0; i < sortOrder.length; i++) sortOrder[i] = s.indexOf(attributes.get(i));
     }
 
     /** @param orderBys list of columns to prioritize for sorting
@@ -255,11 +1052,38 @@ class TupleComparator implements Comparator<Tuple> {
         return sortOrder;
     }
 
+    /** @param data   rows of tuples
+     * @param offset position in data of a tuple's first value
+     * @return the first two sort columns of the tuple packed into a key that orders like them; the
+     *         second column is 0 if there is only one */
+    long prefix(int[] data, int offset) {
+        return KeySort.pack(data[offset + sortOrder[0]], sortOrder.length > 1 ? data[offset + sortOrder[1]] : 0);
+    }
+
+    /** @return true if tuples with equal prefixes can still differ in order */
+    boolean prefixTies() {
+        return sortOrder.length > 2;
+    }
+
+    /** compares rows of Tuple data column by column as specified by tableColumnNames */
+    public int compare(int[] r1, int[] r2) {
+        return compare(r1, 0, r2, 0);
+    }
+
+    /** compares rows stored at offsets of arrays column by column as specified by tableColumnNames */
+    public int compare(int[] d1, int o1, int[] d2, int o2) {
+        for (int slot : sortOrder) {
+            int comp = Integer.compare(d1[o1 + slot], d2[o2 + slot]);
+            if (comp != 0) return comp;
+        }
+        return 0;
+    }
+
     /** compares Tuples column by column as specified by tableColumnNames */
     @Override
     public int compare(Tuple t1, Tuple t2) {
-        for (Attribute attr : sortOrder) {
-            int comp = Integer.compare(t1.get(attr), t2.get(attr));
+        for (int slot : sortOrder) {
+            int comp = Integer.compare(t1.get(slot), t2.get(slot));
             if (comp != 0) return comp;
         }
         return 0;
@@ -0,0 +1,197 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.writeLevel;
+
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/** An operator that filters out duplicates of unsorted input with an in-memory hash table of the
+ * tuples it returned, so each tuple is returned as soon as it is first read.
+ *
+ * If the distinct tuples do not fit in the buffer pages, the input is hash-partitioned: the
+ * largest partitions are spilled to the temp directory until the rest fit, together with the
+ * tuples already returned from them, and later tuples of spilled partitions are spilled with them.
+ * Once the input is exhausted, every spilled partition is processed the same way, with a different
+ * hash function, by first loading its returned tuples and then streaming its other tuples. */
+public class HashDuplicateEliminationOperator extends PhysicalOperator {
+
+    /** Number of tuples the hash table of a pass is first allocated for */
+    private static final int INITIAL_TABLE_SIZE = 1024;
+
+    public PhysicalOperator child;
+
+    /** Positions of all of the columns, the key of the hash table */
+    private int[] slots;
+
+    /** Number of partitions of each pass */
+    private int fanout;
+
+    /** Hash table of the distinct tuples of the current pass */
+    SpillableHashTable table;
+
+    /** True once the child and every spilled partition were processed */
+    private boolean done;
+
+    /** True if closed since the last reset */
+    private boolean closed;
+
+    /** Reader of the partition of the current pass, null if the child is read */
+    private TupleReader reader;
+
+    /** Number of tuples of the hash table returned, used to return them again after a reset if
+     * nothing was spilled */
+    private int position;
+
+    /** @param child child operator
+     * @param pages number of buffer pages the hash table may fill before partitions spill */
+    public HashDuplicateEliminationOperator(PhysicalOperator child, int pages) {
+        super(child.schema);
+        this.child = child;
+        slots = new int[schema.size()];
+        for (int i = 0; i < slots.length; i++) slots[i] = i;
+        fanout = Math.max(2, pages - 1);
+        table = new SpillableHashTable(pages, schema.size());
+        startPass(0);
+    }
+
+    /** Empties the hash table and makes every partition resident for a new pass.
+     *
+     * @param level partitioning level of the pass */
+    private void startPass(int level) {
+        table.startPass(level, fanout, INITIAL_TABLE_SIZE);
+        position = 0;
+    }
+
+    /** Checks a tuple against the hash table and adds it if it is new. Tuples of spilled partitions
+     * are spilled instead.
+     *
+     * @param t    tuple
+     * @param seen true if the tuple was already returned and is known to be distinct
+     * @return true if the tuple is new and in the hash table, so it should be returned
+     * @throws IOException */
+    private boolean add(Tuple t, boolean seen) throws IOException {
+        int hash = SpillableHashTable.hash(t, slots);
+        int p = table.partitionOf(hash);
+        if (!table.isResident(p)) {
+            table.spill(p, t, seen);
+            return false;
+        }
+        if (!seen && table.contains(t, hash)) return false;
+        table.add(t, hash);
+        if (!table.spilled()) position = table.size();
+        return !seen;
+    }
+
+    /** Closes the partition files of the current pass and queues every spilled partition that has
+     * tuples not yet checked.
+     *
+     * @throws IOException */
+    private void finishPass() throws IOException {
+        table.finishPass();
+        closeReader();
+    }
+
+    /** Closes the reader of the current pass
+     *
+     * @throws IOException */
+    private void closeReader() throws IOException {
+        if (reader != null) reader.close();
+        reader = null;
+    }
+
+    /** Starts a partitioning pass over a spilled partition by loading its returned tuples.
+     *
+     * @param partition spilled partition to process
+     * @throws IOException */
+    private void nextPass(SpillableHashTable.Partition partition) throws IOException {
+        startPass(partition.level);
+        int[] row = new int[schema.size()];
+        if (partition.tablePath != null) {
+            TupleReader seen = new TupleReader(partition.tablePath, false, Catalog.READ_AHEAD_PAGES);
+            while (seen.nextTuple(row)) add(new Tuple(schema, row.clone()), true);
+            seen.close();
+        }
+        reader = new TupleReader(partition.streamPath, false, Catalog.READ_AHEAD_PAGES);
+    }
+
+    /** @return next tuple of the child or partition of the current pass, null if none
+     * @throws IOException */
+    private Tuple nextInput() throws IOException {
+        if (reader == null) return child.getNextTuple();
+        int[] row = new int[schema.size()];
+        return reader.nextTuple(row) ? new Tuple(schema, row) : null;
+    }
+
+    /** Returns the tuples kept from before a reset first, then reads the input and processes the
+     * spilled partitions once it is exhausted.
+     *
+     * @return next unique Tuple */
+    @Override
+    public Tuple getNextTuple() {
+        if (closed) return null;
+        if (!table.spilled() && position < table.size()) return table.get(position++);
+        try {
+            while (!done) {
+                Tuple t = nextInput();
+                if (t == null) {
+                    finishPass();
+                    SpillableHashTable.Partition partition = table.nextPartition();
+                    if (partition == null) {
+                        done = true;
+                        return null;
+                    }
+                    nextPass(partition);
+                    continue;
+                }
+                if (add(t, false)) return t;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /** Returns the tuples in the hash table again if nothing was spilled, otherwise starts over
+     * from the child. */
+    @Override
+    public void reset() {
+        boolean restart = table.spilled() || closed && !done;
+        closed = false;
+        if (!restart) {
+            position = 0;
+            return;
+        }
+        try {
+            closeReader();
+            table.restart();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        done = false;
+        startPass(0);
+        child.reset();
+    }
+
+    /** Closes the partition files and the child, and drops the spilled partitions not yet
+     * processed. The hash table is kept for a reset if nothing was spilled. */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            closeReader();
+            table.dropSpills();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        child.close();
+    }
+
+    @Override
+    public void write(PrintWriter pw, int level) {
+        pw.println(writeLevel("HashDupElim", level));
+        child.write(pw, level + 1);
+    }
+}
@@ -0,0 +1,287 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.writeLevel;
+
+import com.dbms.utils.Attribute;
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Schema;
+import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedList;
+import java.util.List;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+/** An operator for equi-joins that loads the smaller input into an in-memory hash table on its
+ * equality columns, then streams the other input and probes the table with each of its tuples.
+ * Output tuples always have the left schema followed by the right schema.
+ *
+ * If the build input does not fit in the buffer pages, this is a hybrid hash join: both inputs are
+ * hash-partitioned on the same key, the largest partitions of the build input are spilled to the
+ * temp directory until the rest fit, and probe tuples of spilled partitions are spilled with them.
+ * Once the probe input is exhausted, every pair of spilled partitions is joined the same way, with
+ * a different hash function, so partitions that are still too large are partitioned again. */
+public class HashJoinOperator extends PhysicalOperator {
+
+    /** Table on the left of the join */
+    public PhysicalOperator left;
+
+    /** Table on the right of the join */
+    public PhysicalOperator right;
+
+    /** Equality conditions of the join */
+    private List<EqualsTo> conditions;
+
+    /** True if the hash table holds the left input and the right input is streamed */
+    private boolean buildLeft;
+
+    /** Input held in the hash table */
+    private PhysicalOperator build;
+
+    /** Input streamed against the hash table */
+    private PhysicalOperator probe;
+
+    /** Positions in the build schema of the equality columns */
+    private int[] buildSlots;
+
+    /** Positions in the probe schema of the equality columns, in the order of buildSlots */
+    private int[] probeSlots;
+
+    /** Expected number of build tuples, used to size the hash table */
+    private int expectedRows;
+
+    /** Number of buffer pages */
+    private int pages;
+
+    /** Hash table of the build input or partition of the current pass */
+    SpillableHashTable table;
+
+    /** True once the hash table holds the build input */
+    private boolean built;
+
+    /** Reader of the build partition of the current pass, null if the build input is read */
+    private TupleReader buildReader;
+
+    /** Reader of the probe partition of the current pass, null if the probe input is read */
+    private TupleReader probeReader;
+
+    /** Current probe tuple, null before the first probe */
+    private Tuple probeTuple;
+
+    /** Hash of the current probe tuple's key */
+    private int probeHash;
+
+    /** Next build tuple to compare with the current probe tuple, -1 if none */
+    private int chain = -1;
+
+    /** @param left         left child operator
+     * @param right        right child operator
+     * @param conditions   equality conditions between a left and a right column, as given by
+     *                     {@code Helpers.getEqualityConditions}
+     * @param buildLeft    true to load the left input into the hash table, false for the right
+     * @param expectedRows expected number of tuples of the loaded input
+     * @param pages        number of buffer pages the hash table may fill before partitions spill */
+    public HashJoinOperator(
+            PhysicalOperator left,
+            PhysicalOperator right,
+            List<EqualsTo> conditions,
+            boolean buildLeft,
+            int expectedRows,
+            int pages) {
+        super(Schema.join(left.schema, right.schema));
+        this.left = left;
+        this.right = right;
+        this.conditions = conditions;
+        this.buildLeft = buildLeft;
+        this.expectedRows = expectedRows;
+        this.pages = pages;
+        build = buildLeft ? left : right;
+        probe = buildLeft ? right : left;
+        table = new SpillableHashTable(pages, build.schema.size());
+        buildSlots = new int[conditions.size()];
+        probeSlots = new int[conditions.size()];
+        for (int i = 0; i < buildSlots.length; i++) {
+            Attribute a = Attribute.fromColumn((Column) conditions.get(i).getLeftExpression());
+            Attribute b = Attribute.fromColumn((Column) conditions.get(i).getRightExpression());
+            boolean aInBuild = build.schema.get().contains(a);
+            buildSlots[i] = build.schema.indexOf(aInBuild ? a : b);
+            probeSlots[i] = probe.schema.indexOf(aInBuild ? b : a);
+        }
+    }
+
+    /** Partitions stay resident until the table spills, so partitioning costs nothing if the
+     * build input fits, and an expected number of build tuples that is too low only spills some
+     * of the partitions.
+     *
+     * @param level partitioning level of the pass
+     * @return number of partitions of the pass */
+    private int partitions(int level) {
+        return level >= SpillableHashTable.MAX_LEVEL ? 1 : Math.max(2, pages - 1);
+    }
+
+    /** @return next tuple of the build input or partition of the current pass, null if none
+     * @throws IOException */
+    private Tuple nextBuild() throws IOException {
+        if (buildReader == null) return build.getNextTuple();
+        int[] row = new int[build.schema.size()];
+        return buildReader.nextTuple(row) ? new Tuple(build.schema, row) : null;
+    }
+
+    /** @return next tuple of the probe input or partition of the current pass, null if none
+     * @throws IOException */
+    private Tuple nextProbe() throws IOException {
+        if (probeReader == null) return probe.getNextTuple();
+        int[] row = new int[probe.schema.size()];
+        return probeReader.nextTuple(row) ? new Tuple(probe.schema, row) : null;
+    }
+
+    /** Partitions the build input or partition of the current pass into the hash table, which
+     * spills the largest partitions until the rest fit in the buffer pages.
+     *
+     * @param expected expected number of build tuples
+     * @param level    partitioning level of the pass
+     * @throws IOException */
+    private void buildTable(int expected, int level) throws IOException {
+        table.startPass(level, partitions(level), expected);
+        Tuple t;
+        while ((t = nextBuild()) != null) {
+            int hash = SpillableHashTable.hash(t, buildSlots);
+            int p = table.partitionOf(hash);
+            if (table.isResident(p)) {
+                table.add(t, hash);
+            } else {
+                table.spill(p, t, true);
+            }
+        }
+        built = true;
+    }
+
+    /** Closes the partition files of the current pass and queues every pair of spilled partitions
+     * that both hold tuples.
+     *
+     * @throws IOException */
+    private void finishPass() throws IOException {
+        table.finishPass();
+        closeReaders();
+    }
+
+    /** Closes the readers of the current pass
+     *
+     * @throws IOException */
+    private void closeReaders() throws IOException {
+        if (buildReader != null) buildReader.close();
+        if (probeReader != null) probeReader.close();
+        buildReader = null;
+        probeReader = null;
+    }
+
+    /** Starts a partitioning pass over a pair of spilled partitions.
+     *
+     * @param partition spilled partitions to join
+     * @throws IOException */
+    private void nextPass(SpillableHashTable.Partition partition) throws IOException {
+        buildReader = new TupleReader(partition.tablePath, false, Catalog.READ_AHEAD_PAGES);
+        probeReader = new TupleReader(partition.streamPath, false, Catalog.READ_AHEAD_PAGES);
+        buildTable(partition.rows, partition.level);
+    }
+
+    /** @param t build tuple
+     * @return true if the build tuple's key equals the current probe tuple's key */
+    private boolean keysEqual(Tuple t) {
+        for (int i = 0; i < buildSlots.length; i++) {
+            if (t.get(buildSlots[i]) != probeTuple.get(probeSlots[i])) return false;
+        }
+        return true;
+    }
+
+    /** Builds the hash table on the first call, and joins the spilled partitions once the probe
+     * input is exhausted.
+     *
+     * @return next pair of a probe tuple and a build tuple with equal keys, merged in left to right
+     *         order */
+    @Override
+    public Tuple getNextTuple() {
+        try {
+            if (!built) buildTable(expectedRows, 0);
+            while (true) {
+                while (chain != -1) {
+                    int entry = chain;
+                    chain = table.next(entry);
+                    Tuple t = table.get(entry);
+                    if (table.hashOf(entry) == probeHash && keysEqual(t)) {
+                        return buildLeft
+                                ? Tuple.mergeTuples(schema, t, probeTuple)
+                                : Tuple.mergeTuples(schema, probeTuple, t);
+                    }
+                }
+                probeTuple = nextProbe();
+                if (probeTuple == null) {
+                    finishPass();
+                    SpillableHashTable.Partition partition = table.nextPartition();
+                    if (partition == null) return null;
+                    nextPass(partition);
+                    continue;
+                }
+                probeHash = SpillableHashTable.hash(probeTuple, probeSlots);
+                int p = table.partitionOf(probeHash);
+                if (table.isResident(p)) {
+                    chain = table.head(probeHash);
+                } else {
+                    table.spill(p, probeTuple, false);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /** Resets the probe input and keeps the hash table if nothing was spilled, otherwise starts
+     * the join over from both inputs */
+    @Override
+    public void reset() {
+        probeTuple = null;
+        chain = -1;
+        if (!table.spilled()) {
+            probe.reset();
+            return;
+        }
+        try {
+            closeReaders();
+            table.restart();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        built = false;
+        build.reset();
+        probe.reset();
+    }
+
+    /** Closes the partition files and both inputs, and drops the spilled partitions not yet
+     * joined. The hash table is kept for a reset if nothing was spilled. */
+    @Override
+    public void close() {
+        probeTuple = null;
+        chain = -1;
+        try {
+            closeReaders();
+            table.dropSpills();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        build.close();
+        probe.close();
+    }
+
+    @Override
+    public void write(PrintWriter pw, int level) {
+        List<String> equals = new LinkedList<>();
+        for (EqualsTo condition : conditions) equals.add(condition.toString());
+        String s = String.format("HashJoin[%s]", String.join(" AND ", equals));
+        pw.println(writeLevel(s, level));
+        left.write(pw, level + 1);
+        right.write(pw, level + 1);
+    }
+}
@@ -0,0 +1,211 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.writeLevel;
+
+import com.dbms.index.Index;
+import com.dbms.index.TreeDeserializer;
+import com.dbms.utils.Attribute;
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Condition;
+import com.dbms.utils.ConditionCompiler;
+import com.dbms.utils.Schema;
+import com.dbms.utils.Tuple;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.sf.jsqlparser.expression.Expression;
+
+/** An operator that joins each outer tuple with the inner tuples found by looking up its key in a
+ * B+ tree index of the inner table, so the inner table is never scanned. Outer tuples are read in
+ * blocks and probed in key order, so the index leaves and table pages are visited in order and
+ * outer tuples with the same key share one lookup. */
+public class IndexNestedLoopJoinOperator extends PhysicalOperator {
+
+    /** Outer child operator */
+    public PhysicalOperator left;
+
+    /** (aliased) inner table name */
+    private String innerTableName;
+
+    /** Index of the inner table that is probed */
+    private Index index;
+
+    /** Deserializer for the index */
+    private TreeDeserializer td;
+
+    /** Schema of the inner table */
+    private Schema innerSchema;
+
+    /** Position of the probe key in outer tuples */
+    private int keySlot;
+
+    /** Position of the index key in inner tuples */
+    private int innerKeySlot;
+
+    /** Selection on the inner table, null if none */
+    private Expression innerExp;
+
+    /** Compiled selection on the inner table, null if none */
+    private Condition innerCondition;
+
+    /** Join expression */
+    private Expression joinExp;
+
+    /** Compiled join expression */
+    private Condition joinCondition;
+
+    /** Maximum number of outer tuples in a block */
+    private int blockSize;
+
+    /** Outer tuples of the current block */
+    private Tuple[] block;
+
+    /** Number of outer tuples in the current block */
+    private int count;
+
+    /** Each outer tuple of the block as its key in the high half and its block position in the low
+     * half, in ascending order */
+    private long[] sorted;
+
+    /** Position in sorted after the outer tuples sharing the current key */
+    private int groupEnd;
+
+    /** Position in sorted of the current outer tuple */
+    private int outerPos;
+
+    /** Inner tuples that have the current key and satisfy the inner selection */
+    private List<Tuple> matches = new ArrayList<>();
+
+    /** Position in matches of the next inner tuple to join with the current outer tuple */
+    private int innerPos;
+
+    /** @param left           outer child operator
+     * @param innerTableName (aliased) inner table name
+     * @param index          index of the inner table
+     * @param outerKey       outer column equal to the index key
+     * @param innerExp       selection on the inner table, null if none
+     * @param joinExp        join expression, including the equality of outerKey and the index key
+     * @param pages          number of buffer pages for blocks of outer tuples
+     * @throws IOException */
+    public IndexNestedLoopJoinOperator(
+            PhysicalOperator left,
+            String innerTableName,
+            Index index,
+            Attribute outerKey,
+            Expression innerExp,
+            Expression joinExp,
+            int pages)
+            throws IOException {
+        super(Schema.join(left.schema, Schema.from(innerTableName, Catalog.getAttributes(index.name.TABLE))));
+        this.left = left;
+        this.innerTableName = innerTableName;
+        this.index = index;
+        this.innerExp = innerExp;
+        this.joinExp = joinExp;
+        innerSchema = Schema.from(innerTableName, Catalog.getAttributes(index.name.TABLE));
+        td = new TreeDeserializer(index);
+        keySlot = left.schema.indexOf(outerKey);
+        innerKeySlot = Catalog.getColumnIndex(index.name);
+        innerCondition = innerExp != null ? ConditionCompiler.compile(innerExp, innerSchema) : null;
+        joinCondition = ConditionCompiler.compile(joinExp, left.schema, innerSchema);
+        blockSize = Math.max(1, pages * Catalog.BUFFER_PAGE_SIZE / (4 * left.schema.size()));
+        block = new Tuple[blockSize];
+        sorted = new long[blockSize];
+    }
+
+    /** Reads the next block of outer tuples and sorts them by key.
+     *
+     * @return true if the block holds any tuples */
+    private boolean loadBlock() {
+        count = 0;
+        Tuple t;
+        while (count < blockSize && (t = left.getNextTuple()) != null) {
+            sorted[count] = (long) t.get(keySlot) << 32 | count;
+            block[count++] = t;
+        }
+        Arrays.sort(sorted, 0, count);
+        groupEnd = 0;
+        outerPos = 0;
+        return count > 0;
+    }
+
+    /** Looks up the inner tuples with the key of the next outer tuple, and advances groupEnd past
+     * the outer tuples with that key.
+     *
+     * @throws IOException */
+    private void probeNextKey() throws IOException {
+        int key = (int) (sorted[groupEnd] >> 32);
+        while (groupEnd < count && (int) (sorted[groupEnd] >> 32) == key) groupEnd++;
+        matches.clear();
+        innerPos = 0;
+        int[] row = new int[innerSchema.size()];
+        boolean read = td.getFirstTupleAtKey(key, row);
+        while (read && row[innerKeySlot] == key) {
+            Tuple t = new Tuple(innerSchema, row);
+            if (innerCondition == null || innerCondition.test(t)) matches.add(t);
+            row = new int[innerSchema.size()];
+            read = td.getNextTuple(row);
+        }
+    }
+
+    /** @return next outer tuple joined with a matching inner tuple, in left to right order */
+    @Override
+    public Tuple getNextTuple() {
+        try {
+            while (true) {
+                while (outerPos < groupEnd) {
+                    Tuple outer = block[(int) sorted[outerPos]];
+                    while (innerPos < matches.size()) {
+                        Tuple inner = matches.get(innerPos++);
+                        if (joinCondition.test(outer, inner)) return Tuple.mergeTuples(schema, outer, inner);
+                    }
+                    outerPos++;
+                    innerPos = 0;
+                }
+                if (groupEnd == count && !loadBlock()) return null;
+                probeNextKey();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        left.reset();
+        count = 0;
+        groupEnd = 0;
+        outerPos = 0;
+        innerPos = 0;
+        matches.clear();
+    }
+
+    /** Drops the current block and closes the outer child and the index */
+    @Override
+    public void close() {
+        count = 0;
+        groupEnd = 0;
+        outerPos = 0;
+        innerPos = 0;
+        matches.clear();
+        left.close();
+        try {
+            td.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void write(PrintWriter pw, int level) {
+        pw.println(writeLevel(String.format("IndexNestedLoopJoin[%s]", joinExp), level));
+        left.write(pw, level + 1);
+        int probeLevel = level + 1;
+        if (innerExp != null) pw.println(writeLevel(String.format("Select[%s]", innerExp), probeLevel++));
+        String s = String.format("IndexProbe[%s,%s,%s]", innerTableName, index.name.TABLE, index.name.COLUMN);
+        pw.println(writeLevel(s, probeLevel));
+    }
+}
@@ -7,6 +7,7 @@ import com.dbms.index.TreeDeserializer;
 import com.dbms.utils.Catalog;
 import com.dbms.utils.Schema;
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
@@ -67,11 +68,51 @@ public class IndexScanOperator extends PhysicalOperator {
         return null;
     }
 
+    /** Reads the next tuples of the index straight into this operator's batch.
+     *
+     * @return next batch of tuples with keys in the bounds, null if none are left */
+    @Override
+    public TupleBatch getNextBatch() {
+        try {
+            TupleBatch b = emptyBatch();
+            int[] data = b.data;
+            int width = b.width;
+            while (b.size < b.capacity()) {
+                int offset = b.size * width;
+                boolean read;
+                if (isFirstCall) {
+                    isFirstCall = false;
+                    read = td.getFirstTupleAtKey(lowkey, data, offset);
+                } else {
+                    read = td.getNextTuple(data, offset);
+                }
+                if (!read || highkey != null && data[offset + attributeIndex] > highkey) break;
+                b.size++;
+            }
+            b.selectAll();
+            return b.count == 0 ? null : b;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     @Override
     public void reset() {
         isFirstCall = true;
     }
 
+    /** closes the index and table files until the next reset */
+    @Override
+    public void close() {
+        try {
+            isFirstCall = false;
+            td.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void write(PrintWriter pw, int level) {
         String s = String.format("IndexScan[%s,%s,%d,%d]", tableName, attribute, lowkey, highkey);
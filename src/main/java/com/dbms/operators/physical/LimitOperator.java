@@ -0,0 +1,72 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.writeLevel;
+
+import com.dbms.utils.Tuple;
+import java.io.PrintWriter;
+
+/** An operator that skips the first rows of its child and returns at most a number of the rows
+ * after them. */
+public class LimitOperator extends PhysicalOperator {
+    public PhysicalOperator child;
+
+    /** Maximum number of rows to return, null if unlimited */
+    private Long limit;
+
+    /** Number of child rows to skip */
+    private long offset;
+
+    /** Number of child rows read since the last reset */
+    private long read;
+
+    /** True once the child was closed */
+    private boolean closed;
+
+    /** @param child  child operator
+     * @param limit  maximum number of rows to return, null if unlimited
+     * @param offset number of child rows to skip */
+    public LimitOperator(PhysicalOperator child, Long limit, long offset) {
+        super(child.schema);
+        this.child = child;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /** @return next child Tuple after the skipped ones, null once limit Tuples were returned, at
+     *         which point the child is closed so the operators below stop reading */
+    @Override
+    public Tuple getNextTuple() {
+        if (closed) return null;
+        while (read < offset && child.getNextTuple() != null) read++;
+        if (read < offset) return null;
+        if (limit != null && read >= offset + limit) {
+            close();
+            return null;
+        }
+        Tuple next = child.getNextTuple();
+        if (next != null) read++;
+        return next;
+    }
+
+    /** resets the child operator and the number of rows read */
+    @Override
+    public void reset() {
+        child.reset();
+        read = 0;
+        closed = false;
+    }
+
+    /** closes the child operator */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        child.close();
+    }
+
+    @Override
+    public void write(PrintWriter pw, int level) {
+        pw.println(writeLevel(String.format("Limit[%s, %d]", limit != null ? limit : "ALL", offset), level));
+        child.write(pw, level + 1);
+    }
+}
@@ -1,15 +1,24 @@
 package com.dbms.operators.physical;
 
+import com.dbms.utils.Catalog;
+import com.dbms.utils.IO;
 import com.dbms.utils.Schema;
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import com.dbms.utils.TupleWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 
 public abstract class PhysicalOperator {
+    /** Maximum number of rows in a batch returned by {@code getNextBatch} */
+    public static final int BATCH_SIZE = 1024;
+
     /** schema for this operator, representing the order and names of columns */
     public Schema schema;
 
+    /** Batch returned by {@code getNextBatch}, reused across calls */
+    protected TupleBatch batch;
+
     /** @param schema schema for this operator */
     PhysicalOperator(Schema schema) {
         this.schema = schema;
@@ -18,9 +27,34 @@ public abstract class PhysicalOperator {
     /** @return next tuple of the result of the relation */
     public abstract Tuple getNextTuple();
 
+    /** Returns the next rows of the result as a batch. Operators that do not produce batches
+     * natively fill the batch with {@code getNextTuple}. The batch is owned by the operator and
+     * only valid until the next call on the operator; consumers may narrow its selection vector.
+     * Calls to {@code getNextBatch} and {@code getNextTuple} can be mixed, each returning the rows
+     * after the ones already returned.
+     *
+     * @return next batch with at least one selected row, null if the result is exhausted */
+    public TupleBatch getNextBatch() {
+        TupleBatch b = emptyBatch();
+        Tuple next;
+        while (b.size < b.capacity() && (next = getNextTuple()) != null) b.add(next);
+        return b.count == 0 ? null : b;
+    }
+
+    /** @return this operator's batch, cleared and allocated on first use */
+    protected TupleBatch emptyBatch() {
+        if (batch == null) batch = new TupleBatch(schema, BATCH_SIZE);
+        batch.clear();
+        return batch;
+    }
+
     /** Resets the operator to the first tuple of the result of the relation */
     public abstract void reset();
 
+    /** Tells the operator that no more tuples are wanted from it until it is reset, so it releases
+     * its open files and tells its children the same. Returns null until the next reset. */
+    public abstract void close();
+
     /** Writes this operator at the corresponding level and writes each child operator on the next
      * level.
      *
@@ -31,10 +65,18 @@ public abstract class PhysicalOperator {
     /** @param path is the destination file location for tuple writing
      * @throws IOException */
     public void dump(String path) throws IOException {
-        TupleWriter tw = new TupleWriter(path);
-        Tuple next;
-        while ((next = getNextTuple()) != null) {
-            tw.writeTuple(next);
+        dump(path, IO.PAGE_SIZE, false);
+    }
+
+    /** @param path       is the destination file location for tuple writing
+     * @param pageSize   number of bytes per page of the written file
+     * @param compressed true to write compressed pages
+     * @throws IOException */
+    public void dump(String path, int pageSize, boolean compressed) throws IOException {
+        TupleWriter tw = new TupleWriter(path, Catalog.WRITE_BEHIND_PAGES, pageSize, compressed);
+        TupleBatch b;
+        while ((b = getNextBatch()) != null) {
+            for (int i = 0; i < b.count; i++) tw.writeTuple(b.data, b.selection[i] * b.width, b.width);
         }
         tw.close();
     }
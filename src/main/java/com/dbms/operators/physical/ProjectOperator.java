@@ -4,6 +4,7 @@ import static com.dbms.utils.Helpers.writeLevel;
 
 import com.dbms.utils.Schema;
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import java.io.PrintWriter;
 
 /** An operator that projects the Tuples from its child to a specified list of columns. */
@@ -15,12 +16,16 @@ public class ProjectOperator extends PhysicalOperator {
     /** True if this operator should be visible in the printed query plan. */
     private boolean shouldWrite;
 
+    /** Position in the child schema of every column in this operator's schema */
+    private int[] slots;
+
     /** @param child child operator to project
      * @param schema the schema to which this projects child tuples */
     public ProjectOperator(PhysicalOperator child, Schema s, boolean shouldWrite) {
         super(s);
         this.child = child;
         this.shouldWrite = shouldWrite;
+        slots = child.schema.indexesOf(s);
     }
 
     /** resets child operator */
@@ -29,12 +34,40 @@ public class ProjectOperator extends PhysicalOperator {
         child.reset();
     }
 
+    /** closes the child operator */
+    @Override
+    public void close() {
+        child.close();
+    }
+
     /** @return next projected Tuple */
     @Override
     public Tuple getNextTuple() {
         Tuple nextTuple = child.getNextTuple();
         if (nextTuple == null) return null;
-        return nextTuple.project(schema);
+        return nextTuple.project(schema, slots);
+    }
+
+    /** Copies the projected columns of the selected rows of each child batch into this operator's
+     * batch.
+     *
+     * @return next batch of projected tuples, null if none are left */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch in = child.getNextBatch();
+        if (in == null) return null;
+        TupleBatch out = emptyBatch();
+        int[] src = in.data;
+        int[] dst = out.data;
+        int width = slots.length;
+        for (int i = 0; i < in.count; i++) {
+            int from = in.selection[i] * in.width;
+            int to = i * width;
+            for (int j = 0; j < width; j++) dst[to + j] = src[from + slots[j]];
+        }
+        out.size = in.count;
+        out.selectAll();
+        return out;
     }
 
     @Override
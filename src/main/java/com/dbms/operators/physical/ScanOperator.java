@@ -2,15 +2,20 @@ package com.dbms.operators.physical;
 
 import static com.dbms.utils.Helpers.writeLevel;
 
+import com.dbms.utils.Attribute;
 import com.dbms.utils.Catalog;
+import com.dbms.utils.Range;
 import com.dbms.utils.Schema;
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import com.dbms.utils.TupleReader;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.List;
+import java.util.Set;
 
-/** An operator that reads data from file and builds Tuples. */
+/** An operator that reads data from file and builds Tuples. A scan of a compressed table can be
+ * told which attributes the query uses, in which case only those columns are decoded; the other
+ * columns of its tuples hold 0, so the plan must not read them above the scan. */
 public class ScanOperator extends PhysicalOperator {
 
     /** (aliased) name of underlying table */
@@ -21,21 +26,48 @@ public class ScanOperator extends PhysicalOperator {
 
     /** @param tableName name (aliased) of underlying table */
     public ScanOperator(String tableName) {
+        this(tableName, null);
+    }
+
+    /** @param tableName  name (aliased) of underlying table
+     * @param attributes (aliased) attributes to read, null for all; may include attributes of other
+     *                   tables */
+    public ScanOperator(String tableName, Set<Attribute> attributes) {
         super(Schema.from(tableName, Catalog.getAttributes(Catalog.getRealTableName(tableName))));
         this.tableName = tableName;
         try {
-            reader = new TupleReader(Catalog.pathToTable(Catalog.getRealTableName(tableName)));
+            String unaliased = Catalog.getRealTableName(tableName);
+            reader = new TupleReader(
+                    Catalog.pathToTable(unaliased), Catalog.isMemoryMapped(unaliased), Catalog.READ_AHEAD_PAGES);
+            if (attributes != null) {
+                boolean[] columns = new boolean[schema.size()];
+                for (int i = 0; i < columns.length; i++) columns[i] = attributes.contains(schema.get().get(i));
+                reader.setColumns(columns);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    /** @return next Tuple from underlying DB file */
+    /** Skips the pages of the table that the table's zone map shows cannot hold a tuple within
+     * the bounds.
+     *
+     * @param bounds inclusive bounds on each column, in schema order; null for an unbounded column */
+    public void skipPages(Range[] bounds) {
+        String unaliased = Catalog.getRealTableName(tableName);
+        reader.setSkippedPages(Catalog.STATS.getZoneMap(unaliased).skippedPages(bounds));
+    }
+
+    /** The returned Tuple owns its data, since callers such as join buffers and hash tables keep
+     * it; bulk consumers such as sorts and {@code dump} read the table with {@code getNextBatch},
+     * which does not allocate per row.
+     *
+     * @return next Tuple from underlying DB file */
     @Override
     public Tuple getNextTuple() {
         try {
-            List<Integer> next = reader.nextTuple();
-            if (next == null) return null;
+            int[] next = new int[schema.size()];
+            if (!reader.nextTuple(next)) return null;
             return new Tuple(schema, next);
         } catch (IOException e) {
             e.printStackTrace();
@@ -43,6 +75,22 @@ public class ScanOperator extends PhysicalOperator {
         return null;
     }
 
+    /** Reads the next tuples straight from the table's pages into this operator's batch.
+     *
+     * @return next batch of tuples from underlying DB file, null if none are left */
+    @Override
+    public TupleBatch getNextBatch() {
+        try {
+            TupleBatch b = emptyBatch();
+            b.size = reader.nextTuples(b.data, b.capacity());
+            b.selectAll();
+            return b.count == 0 ? null : b;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     /** closes DB file reader and opens a new one starting at the top of the file */
     @Override
     public void reset() {
@@ -53,6 +101,16 @@ public class ScanOperator extends PhysicalOperator {
         }
     }
 
+    /** closes DB file reader until the next reset */
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void write(PrintWriter pw, int level) {
         String s = String.format("TableScan[%s]", Catalog.getRealTableName(tableName));
@@ -2,8 +2,10 @@ package com.dbms.operators.physical;
 
 import static com.dbms.utils.Helpers.writeLevel;
 
-import com.dbms.utils.ExpressionParseVisitor;
+import com.dbms.utils.Condition;
+import com.dbms.utils.ConditionCompiler;
 import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleBatch;
 import java.io.PrintWriter;
 import net.sf.jsqlparser.expression.Expression;
 
@@ -12,18 +14,19 @@ public class SelectOperator extends PhysicalOperator {
     /** {@code scanOperator} is the child {@code ScanOperator} of the {@code SelectOperator} */
     public PhysicalOperator scanOp;
 
-    /** {@code visitor} helps convert the select conditions to programmatic types */
-    private ExpressionParseVisitor epv = new ExpressionParseVisitor();
-
     /** select expression; Tuple is returned if this evaluates to true */
     private Expression exp;
 
+    /** select expression compiled against the child schema */
+    private Condition condition;
+
     /** @param scanOperator child operator of SelectOperator
      * @param expression   the WHERE expression which we select for; is not null */
     public SelectOperator(PhysicalOperator scanOperator, Expression expression) {
         super(scanOperator.schema);
         scanOp = scanOperator;
         exp = expression;
+        condition = ConditionCompiler.compile(expression, schema);
     }
 
     /** resets underlying scan operator */
@@ -32,16 +35,42 @@ public class SelectOperator extends PhysicalOperator {
         scanOp.reset();
     }
 
+    /** closes underlying scan operator */
+    @Override
+    public void close() {
+        scanOp.close();
+    }
+
     /** @return the next tuple that passes the select expression */
     @Override
     public Tuple getNextTuple() {
         while (true) {
             Tuple nextTuple = scanOp.getNextTuple();
             if (nextTuple == null) return null;
-            epv.currentTuple = nextTuple;
-            exp.accept(epv);
-            if (epv.booleanResult) return nextTuple;
+            if (condition.test(nextTuple)) return nextTuple;
+        }
+    }
+
+    /** Narrows the selection vector of each child batch to the rows that pass the select
+     * expression, skipping batches in which no row passes.
+     *
+     * @return next child batch with at least one row passing the select expression, null if none
+     *         are left */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch b;
+        while ((b = scanOp.getNextBatch()) != null) {
+            int[] data = b.data;
+            int width = b.width;
+            int kept = 0;
+            for (int i = 0; i < b.count; i++) {
+                int row = b.selection[i];
+                if (condition.test(data, row * width, null, 0)) b.selection[kept++] = row;
+            }
+            b.count = kept;
+            if (kept > 0) return b;
         }
+        return null;
     }
 
     @Override
@@ -33,6 +33,12 @@ public class SortMergeJoinOperator extends PhysicalOperator {
      * the next equality. It will be -1 after a merge has been completed. */
     private int lastEqual;
 
+    /** Positions in the left schema of the equality columns, in order of the left sort */
+    private int[] leftSlots;
+
+    /** Positions in the right schema of the equality columns, in order of the right sort */
+    private int[] rightSlots;
+
     /** Constructs a {@code SortMergeJoinOperator} using 2 {@code SortOperator} instances
      *
      * @param left  outer sorted iterator of tuples
@@ -41,6 +47,15 @@ public class SortMergeJoinOperator extends PhysicalOperator {
         super(Schema.join(left.schema, right.schema));
         this.left = left;
         this.right = right;
+        leftSlots = new int[right.orderBys.size()];
+        rightSlots = new int[right.orderBys.size()];
+        for (int i = 0; i < rightSlots.length; i++) {
+            Column leftCol = (Column) left.orderBys.get(i).getExpression();
+            Column rightCol = (Column) right.orderBys.get(i).getExpression();
+            leftSlots[i] = left.schema.indexOf(Attribute.fromColumn(leftCol));
+            rightSlots[i] = right.schema.indexOf(Attribute.fromColumn(rightCol));
+        }
+        right.retainOutput();
         leftTuple = left.getNextTuple();
         rightTuple = right.getNextTuple();
         rightIndex = 0;
@@ -73,7 +88,7 @@ public class SortMergeJoinOperator extends PhysicalOperator {
             }
 
             if (rightTuple != null && mergeCondition(leftTuple, rightTuple) == 0) {
-                Tuple result = Tuple.mergeTuples(leftTuple, rightTuple);
+                Tuple result = Tuple.mergeTuples(schema, leftTuple, rightTuple);
                 rightTuple = right.getNextTuple();
                 return result;
             } else {
@@ -96,6 +111,16 @@ public class SortMergeJoinOperator extends PhysicalOperator {
         lastEqual = -1;
     }
 
+    /** Closes both of the SortOperator objects. */
+    @Override
+    public void close() {
+        left.close();
+        right.close();
+        leftTuple = null;
+        rightTuple = null;
+        lastEqual = -1;
+    }
+
     /** Acts as a compare function between 2 tuples. Uses the orderBys of underlying sort operator
      * for the equality condition ordering.
      *
@@ -106,12 +131,8 @@ public class SortMergeJoinOperator extends PhysicalOperator {
      * @return 1 if leftTuple has a greater value than rightTuple, -1 if leftTuple has a smaller
      *         value than rightTuple, 0 if they're equal */
     private int mergeCondition(Tuple leftTuple, Tuple rightTuple) {
-        for (int i = 0; i < right.orderBys.size(); i++) {
-            Column leftCol = (Column) left.orderBys.get(i).getExpression();
-            Column rightCol = (Column) right.orderBys.get(i).getExpression();
-            int leftVal = leftTuple.get(Attribute.fromColumn(leftCol));
-            int rightVal = rightTuple.get(Attribute.fromColumn(rightCol));
-            int comp = Integer.compare(leftVal, rightVal);
+        for (int i = 0; i < rightSlots.length; i++) {
+            int comp = Integer.compare(leftTuple.get(leftSlots[i]), rightTuple.get(rightSlots[i]));
             if (comp != 0) return comp;
         }
 
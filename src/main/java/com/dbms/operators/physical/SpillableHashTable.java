@@ -0,0 +1,353 @@
+package com.dbms.operators.physical;
+
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Tuple;
+import com.dbms.utils.TupleWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.UUID;
+
+/** A chained in-memory hash table of tuples for the hash-based operators, which stays within its
+ * buffer pages by hash-partitioning its tuples: once it holds more tuples than fit, the resident
+ * partition with the most tuples is spilled to the temp directory, and later tuples of spilled
+ * partitions are spilled with it. Each spilled partition has a file of tuples that belong in the
+ * table and a file of tuples streamed against the table, and is processed in a later pass one
+ * partitioning level down, which uses a different hash function. */
+class SpillableHashTable {
+
+    /** Number of partitioning levels after which a partition is loaded whole, since its tuples
+     * most likely share one key */
+    static final int MAX_LEVEL = 4;
+
+    /** A spilled partition to process */
+    static class Partition {
+        /** Path of the partition's tuples that belong in the table, null if none */
+        final String tablePath;
+
+        /** Path of the partition's tuples streamed against the table */
+        final String streamPath;
+
+        /** Partitioning level of the partition's tuples */
+        final int level;
+
+        /** Number of tuples in the table file */
+        final int rows;
+
+        Partition(String tablePath, String streamPath, int level, int rows) {
+            this.tablePath = tablePath;
+            this.streamPath = streamPath;
+            this.level = level;
+            this.rows = rows;
+        }
+    }
+
+    /** Unique identifier for this table. Used to distinguish it in temp directory. */
+    private String id = UUID.randomUUID().toString();
+
+    /** Number of tuples that fit in the buffer pages */
+    private int capacity;
+
+    /** True if any partition was spilled since the last restart */
+    private boolean spilled;
+
+    /** Number of streamed tuples spilled since the last restart */
+    private int streamSpills;
+
+    /** Number of partitioning passes started, used to name partition files */
+    private int passes;
+
+    /** Spilled partitions waiting to be processed */
+    private Deque<Partition> pending = new ArrayDeque<>();
+
+    /** Partitioning level of the current pass, 0 for the operator's input */
+    private int level;
+
+    /** Number of partitions of the current pass */
+    private int fanout;
+
+    /** For each partition of the current pass, true if its tuples are in the hash table */
+    private boolean[] resident;
+
+    /** Number of tuples of each partition in the hash table */
+    private int[] counts;
+
+    /** Writers of the tuples that belong in the table of the spilled partitions of the current pass */
+    private TupleWriter[] tableWriters;
+
+    /** Writers of the streamed tuples of the spilled partitions of the current pass */
+    private TupleWriter[] streamWriters;
+
+    /** Number of tuples written by each writer of tableWriters */
+    private int[] spilledRows;
+
+    /** Tuples, in insertion order */
+    private Tuple[] rows;
+
+    /** Hash of each tuple */
+    private int[] hashes;
+
+    /** Next tuple in the same bucket, -1 at the end of the chain */
+    private int[] next;
+
+    /** First tuple of each bucket, -1 if the bucket is empty */
+    private int[] heads;
+
+    /** Number of tuples in the hash table */
+    private int size;
+
+    /** @param pages number of buffer pages the table may fill before partitions spill
+     * @param width number of attributes per tuple */
+    SpillableHashTable(int pages, int width) {
+        capacity = Math.max(
+                1, (int) Math.min(Integer.MAX_VALUE, (long) pages * Catalog.BUFFER_PAGE_SIZE / (4 * width)));
+    }
+
+    /** @param t     tuple
+     * @param slots positions of the key columns in the tuple
+     * @return hash of the tuple's key */
+    static int hash(Tuple t, int[] slots) {
+        int h = 1;
+        for (int slot : slots) h = 31 * h + t.get(slot);
+        return h ^ (h >>> 16);
+    }
+
+    /** @return true if any partition was spilled since the last restart */
+    boolean spilled() {
+        return spilled;
+    }
+
+    /** @return number of streamed tuples spilled since the last restart */
+    int streamSpills() {
+        return streamSpills;
+    }
+
+    /** Empties the hash table and makes every partition resident for a new pass.
+     *
+     * @param level    partitioning level of the pass
+     * @param fanout   number of partitions of the pass
+     * @param expected expected number of tuples, used to size the hash table */
+    void startPass(int level, int fanout, int expected) {
+        this.level = level;
+        this.fanout = fanout;
+        passes++;
+        int tableSize = Integer.highestOneBit(Math.max(Math.min(expected, capacity), 8) * 2 - 1);
+        rows = new Tuple[tableSize];
+        hashes = new int[tableSize];
+        next = new int[tableSize];
+        heads = new int[tableSize];
+        Arrays.fill(heads, -1);
+        size = 0;
+        resident = new boolean[fanout];
+        Arrays.fill(resident, true);
+        counts = new int[fanout];
+        tableWriters = new TupleWriter[fanout];
+        streamWriters = new TupleWriter[fanout];
+        spilledRows = new int[fanout];
+    }
+
+    /** @param hash hash of a tuple's key
+     * @return partition of the tuple in the current pass */
+    int partitionOf(int hash) {
+        int h = (hash ^ level * 0x9E3779B9) * 0x85EBCA6B;
+        h ^= h >>> 13;
+        return Integer.remainderUnsigned(h, fanout);
+    }
+
+    /** @param partition partition of the current pass
+     * @return true if the partition's tuples are in the hash table */
+    boolean isResident(int partition) {
+        return resident[partition];
+    }
+
+    /** @param t    tuple
+     * @param hash hash of the tuple
+     * @return true if the hash table holds a tuple equal to t */
+    boolean contains(Tuple t, int hash) {
+        for (int e = head(hash); e != -1; e = next[e]) {
+            if (hashes[e] == hash && rows[e].equals(t)) return true;
+        }
+        return false;
+    }
+
+    /** @param hash hash of a key
+     * @return first tuple of the key's bucket, -1 if the bucket is empty */
+    int head(int hash) {
+        return heads[hash & (heads.length - 1)];
+    }
+
+    /** @param entry tuple index
+     * @return next tuple in the same bucket, -1 at the end of the chain */
+    int next(int entry) {
+        return next[entry];
+    }
+
+    /** @param entry tuple index
+     * @return hash of the tuple */
+    int hashOf(int entry) {
+        return hashes[entry];
+    }
+
+    /** @param entry tuple index, in insertion order among the tuples in the table
+     * @return the tuple */
+    Tuple get(int entry) {
+        return rows[entry];
+    }
+
+    /** @return number of tuples in the hash table */
+    int size() {
+        return size;
+    }
+
+    /** Inserts a tuple of a resident partition into the hash table. If the table then holds more
+     * tuples than fit, the largest resident partition is spilled, unless the pass is at the last
+     * partitioning level.
+     *
+     * @param t    tuple
+     * @param hash hash of the tuple
+     * @return true if the tuple is still in the hash table, false if its partition was spilled
+     * @throws IOException */
+    boolean add(Tuple t, int hash) throws IOException {
+        if (size == rows.length) grow(2 * rows.length);
+        int bucket = hash & (heads.length - 1);
+        rows[size] = t;
+        hashes[size] = hash;
+        next[size] = heads[bucket];
+        heads[bucket] = size++;
+        int p = partitionOf(hash);
+        counts[p]++;
+        return size <= capacity || level >= MAX_LEVEL || spillLargest() != p;
+    }
+
+    /** Writes a tuple of a spilled partition to the partition's files.
+     *
+     * @param partition spilled partition of the current pass
+     * @param t         tuple
+     * @param inTable   true if the tuple belongs in the table, false if it is streamed against it
+     * @throws IOException */
+    void spill(int partition, Tuple t, boolean inTable) throws IOException {
+        TupleWriter[] writers = inTable ? tableWriters : streamWriters;
+        if (writers[partition] == null) writers[partition] = partitionWriter(path(passes, partition, inTable));
+        writers[partition].writeTuple(t);
+        if (inTable) {
+            spilledRows[partition]++;
+        } else {
+            streamSpills++;
+        }
+    }
+
+    /** Resizes the hash table and rehashes its tuples.
+     *
+     * @param length new number of slots; a power of two that is at least the number of tuples */
+    private void grow(int length) {
+        rows = Arrays.copyOf(rows, length);
+        hashes = Arrays.copyOf(hashes, length);
+        next = Arrays.copyOf(next, length);
+        heads = new int[length];
+        Arrays.fill(heads, -1);
+        for (int i = 0; i < size; i++) {
+            int bucket = hashes[i] & (length - 1);
+            next[i] = heads[bucket];
+            heads[bucket] = i;
+        }
+    }
+
+    /** Spills the tuples of the resident partition with the most tuples and removes them from the
+     * hash table.
+     *
+     * @return the spilled partition
+     * @throws IOException */
+    private int spillLargest() throws IOException {
+        int largest = 0;
+        for (int p = 1; p < fanout; p++) {
+            if (resident[p] && (!resident[largest] || counts[p] > counts[largest])) largest = p;
+        }
+        if (!spilled) Catalog.createTempSubDir(id);
+        spilled = true;
+        resident[largest] = false;
+        counts[largest] = 0;
+        tableWriters[largest] = partitionWriter(path(passes, largest, true));
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (partitionOf(hashes[i]) == largest) {
+                tableWriters[largest].writeTuple(rows[i]);
+                spilledRows[largest]++;
+            } else {
+                rows[kept] = rows[i];
+                hashes[kept++] = hashes[i];
+            }
+        }
+        Arrays.fill(rows, kept, size, null);
+        size = kept;
+        grow(rows.length);
+        return largest;
+    }
+
+    /** @param pass      partitioning pass
+     * @param partition partition of the pass
+     * @param inTable   true for the tuples that belong in the table, false for the streamed tuples
+     * @return path to unique temp subdirectory with specified filename */
+    private String path(int pass, int partition, boolean inTable) {
+        return Catalog.pathToTempFile(id + File.separator + pass + "_" + partition + (inTable ? "t" : "s"));
+    }
+
+    /** @param path path of the partition file
+     * @return writer for a partition file, with a single page buffer
+     * @throws IOException */
+    private static TupleWriter partitionWriter(String path) throws IOException {
+        return new TupleWriter(path, 0, Catalog.BUFFER_PAGE_SIZE, Catalog.COMPRESS_RUNS);
+    }
+
+    /** Closes the partition files of the current pass and queues every spilled partition that has
+     * streamed tuples.
+     *
+     * @throws IOException */
+    void finishPass() throws IOException {
+        for (int p = 0; p < fanout; p++) {
+            if (streamWriters[p] != null) {
+                String tablePath = tableWriters[p] != null ? path(passes, p, true) : null;
+                pending.add(new Partition(tablePath, path(passes, p, false), level + 1, spilledRows[p]));
+            }
+        }
+        closeWriters();
+    }
+
+    /** @return next spilled partition to process, null if none are left */
+    Partition nextPartition() {
+        return pending.poll();
+    }
+
+    /** Closes the partition files of the current pass, if any
+     *
+     * @throws IOException */
+    private void closeWriters() throws IOException {
+        if (tableWriters == null) return;
+        for (int p = 0; p < fanout; p++) {
+            if (tableWriters[p] != null) tableWriters[p].close();
+            if (streamWriters[p] != null) streamWriters[p].close();
+            tableWriters[p] = null;
+            streamWriters[p] = null;
+        }
+    }
+
+    /** Closes the partition files and drops the spilled partitions not yet processed. The tuples
+     * in the hash table are kept.
+     *
+     * @throws IOException */
+    void dropSpills() throws IOException {
+        closeWriters();
+        pending.clear();
+    }
+
+    /** Drops the spilled partitions, so the operator can read its input again from the start.
+     * The next pass must be started with {@code startPass}.
+     *
+     * @throws IOException */
+    void restart() throws IOException {
+        dropSpills();
+        spilled = false;
+        streamSpills = 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.writeLevel;
+
+import com.dbms.utils.Tuple;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.PriorityQueue;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+
+/** An operator for ORDER BY with LIMIT that returns the first rows of the sorted child without
+ * sorting all of it. The child is read once into a heap that holds the largest of the smallest
+ * rows seen on top, so each child row is kept only if it is smaller than that row, and memory is
+ * bounded by the number of rows returned plus the offset. Nothing is written to disk. */
+public class TopNOperator extends PhysicalOperator {
+    public PhysicalOperator child;
+
+    /** {@code orderBys} is an ordered-list of columns to sort by */
+    List<OrderByElement> orderBys;
+
+    /** Number of rows to keep, the limit plus the offset */
+    private int n;
+
+    /** Number of the smallest rows to skip */
+    private int offset;
+
+    /** Comparator for child tuples */
+    private TupleComparator tc;
+
+    /** Smallest rows of the child in sorted order, null until the child was read */
+    private Tuple[] rows;
+
+    /** Index in rows of the next row returned */
+    private int position;
+
+    /** True if closed since the last reset */
+    private boolean closed;
+
+    /** @param child    child operator
+     * @param orderBys list of orderBys, null if none
+     * @param limit    maximum number of rows to return
+     * @param offset   number of the smallest rows to skip */
+    public TopNOperator(PhysicalOperator child, List<OrderByElement> orderBys, int limit, int offset) {
+        super(child.schema);
+        this.child = child;
+        this.orderBys = orderBys;
+        this.offset = offset;
+        n = limit + offset;
+        tc = new TupleComparator(orderBys, schema);
+    }
+
+    /** Reads the child and keeps its n smallest rows in sorted order */
+    private void selectRows() {
+        PriorityQueue<Tuple> heap = new PriorityQueue<>(Math.max(1, n + 1), tc.reversed());
+        Tuple next;
+        while (n > 0 && (next = child.getNextTuple()) != null) {
+            if (heap.size() < n) {
+                heap.offer(next);
+            } else if (tc.compare(next, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(next);
+            }
+        }
+        rows = new Tuple[heap.size()];
+        for (int i = rows.length - 1; i >= 0; i--) rows[i] = heap.poll();
+        position = offset;
+    }
+
+    /** @return next of the smallest rows of the child in sorted order */
+    @Override
+    public Tuple getNextTuple() {
+        if (closed) return null;
+        if (rows == null) selectRows();
+        return position < rows.length ? rows[position++] : null;
+    }
+
+    /** resets to the first row returned; the child is not read again once it was read */
+    @Override
+    public void reset() {
+        if (closed && rows == null) child.reset();
+        closed = false;
+        position = offset;
+    }
+
+    /** closes the child operator */
+    @Override
+    public void close() {
+        closed = true;
+        child.close();
+    }
+
+    @Override
+    public void write(PrintWriter pw, int level) {
+        String s = "TopN" + (orderBys != null ? orderBys.toString() : "[]") + "[" + (n - offset) + ", " + offset + "]";
+        pw.println(writeLevel(s, level));
+        child.write(pw, level + 1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.dbms.queryplan;
+
+import com.dbms.utils.Attribute;
+import com.dbms.utils.ExpressionVisitorBase;
+import java.util.HashSet;
+import java.util.Set;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+/** Collects the (aliased) attributes referenced by the expressions it visits */
+public class AttributeVisitor extends ExpressionVisitorBase {
+
+    /** Attributes referenced so far */
+    public Set<Attribute> attributes = new HashSet<>();
+
+    /** @param binop binary expression whose operands are visited */
+    private void visitBinop(BinaryExpression binop) {
+        binop.getLeftExpression().accept(this);
+        binop.getRightExpression().accept(this);
+    }
+
+    @Override
+    public void visit(LongValue longValue) {}
+
+    @Override
+    public void visit(AndExpression and) {
+        visitBinop(and);
+    }
+
+    @Override
+    public void visit(EqualsTo equalsTo) {
+        visitBinop(equalsTo);
+    }
+
+    @Override
+    public void visit(GreaterThan greaterThan) {
+        visitBinop(greaterThan);
+    }
+
+    @Override
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        visitBinop(greaterThanEquals);
+    }
+
+    @Override
+    public void visit(MinorThan minorThan) {
+        visitBinop(minorThan);
+    }
+
+    @Override
+    public void visit(MinorThanEquals minorThanEquals) {
+        visitBinop(minorThanEquals);
+    }
+
+    @Override
+    public void visit(NotEqualsTo notEqualsTo) {
+        visitBinop(notEqualsTo);
+    }
+
+    @Override
+    public void visit(Column tableColumn) {
+        attributes.add(Attribute.fromColumn(tableColumn));
+    }
+}
@@ -77,6 +77,12 @@ public final class JoinOrderOptimizer {
         return dpTable.get(namesToKey(allNames)).joins;
     }
 
+    /** @param tables non-empty subset of the (aliased) table names of the join
+     * @return estimated number of tuples in the join of the tables */
+    public double getSize(List<String> tables) {
+        return dpTable.get(namesToKey(new ArrayList<>(tables))).size;
+    }
+
     /** @param order the optimal order of tables
      * @return DP Tuple for this ordering */
     private DPTuple createDPTuple(List<String> order) {
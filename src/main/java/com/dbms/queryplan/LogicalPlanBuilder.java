@@ -1,12 +1,16 @@
 package com.dbms.queryplan;
 
+import static com.dbms.utils.Helpers.getColumnNamesFromSelectItems;
+
 import com.dbms.operators.logical.LogicalDuplicateEliminationOperator;
 import com.dbms.operators.logical.LogicalJoinOperator;
+import com.dbms.operators.logical.LogicalLimitOperator;
 import com.dbms.operators.logical.LogicalOperator;
 import com.dbms.operators.logical.LogicalProjectOperator;
 import com.dbms.operators.logical.LogicalScanOperator;
 import com.dbms.operators.logical.LogicalSelectOperator;
 import com.dbms.operators.logical.LogicalSortOperator;
+import com.dbms.utils.Attribute;
 import com.dbms.utils.Catalog;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
@@ -14,13 +18,17 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.AllColumns;
 import net.sf.jsqlparser.statement.select.Distinct;
 import net.sf.jsqlparser.statement.select.FromItem;
 import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.Offset;
 import net.sf.jsqlparser.statement.select.OrderByElement;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
@@ -30,11 +38,14 @@ import net.sf.jsqlparser.statement.select.SelectItem;
 public class LogicalPlanBuilder {
     public LogicalOperator root;
 
+    /** (aliased) attributes used by the query, null if it selects all columns */
+    private Set<Attribute> attributes;
+
     /** @param tableName (aliased) table name for the scan
      * @param exp       select expression, null if not filtered
      * @return scan operator if expression is null, otherwise a select operator */
     private LogicalOperator createScanAndSelect(String tableName, Expression exp) {
-        LogicalOperator op = new LogicalScanOperator(tableName);
+        LogicalOperator op = new LogicalScanOperator(tableName, attributes);
         if (exp != null) op = new LogicalSelectOperator(op, exp);
         return op;
     }
@@ -68,6 +79,34 @@ public class LogicalPlanBuilder {
         return Catalog.populateAliasMap(tables);
     }
 
+    /** @param selectItems     select items of the query, not all columns
+     * @param exp             where condition, null if none
+     * @param orderByElements order by elements, null if none
+     * @return (aliased) attributes referenced by the select list, where condition and order by */
+    private Set<Attribute> findAttributes(
+            List<SelectItem> selectItems, Expression exp, List<OrderByElement> orderByElements) {
+        AttributeVisitor av = new AttributeVisitor();
+        av.attributes.addAll(getColumnNamesFromSelectItems(selectItems));
+        if (exp != null) exp.accept(av);
+        if (orderByElements != null) orderByElements.forEach(o -> o.getExpression().accept(av));
+        return av.attributes;
+    }
+
+    /** @param limit  limit clause of the query, null if none
+     * @param offset offset clause of the query, null if none
+     * @param child  root of the plan below the limit
+     * @return limit operator over child if the query limits or skips rows, otherwise child */
+    private LogicalOperator createLimit(Limit limit, Offset offset, LogicalOperator child) {
+        Long rowCount = null;
+        long skip = 0;
+        if (limit != null && !limit.isLimitAll() && !limit.isLimitNull() && limit.getRowCount() != null) {
+            rowCount = ((LongValue) limit.getRowCount()).getValue();
+        }
+        if (limit != null && limit.getOffset() != null) skip = ((LongValue) limit.getOffset()).getValue();
+        if (offset != null) skip = ((LongValue) offset.getOffset()).getValue();
+        return rowCount != null || skip > 0 ? new LogicalLimitOperator(child, rowCount, skip) : child;
+    }
+
     /** @param statement Statement for which to build a query plan and create a root operator
      * @throws FileNotFoundException */
     public LogicalPlanBuilder(Statement statement) throws FileNotFoundException {
@@ -82,6 +121,7 @@ public class LogicalPlanBuilder {
         List<String> tableNames = extractNames(mainFromItem, joins);
         List<OrderByElement> orderByElements = body.getOrderByElements();
         Distinct distinct = body.getDistinct();
+        attributes = isAllColumns ? null : findAttributes(selectItems, exp, orderByElements);
 
         LogicalOperator subRoot;
         if (joins != null) {
@@ -93,12 +133,11 @@ public class LogicalPlanBuilder {
             subRoot = createScanAndSelect(tableNames.get(0), exp);
         }
 
-        // add if necessary: projection, sorting, duplicate elimination
+        // add if necessary: projection, sorting, duplicate elimination, limit
         if (!isAllColumns) subRoot = new LogicalProjectOperator(subRoot, selectItems);
-        subRoot = orderByElements != null || distinct != null
-                ? new LogicalSortOperator(subRoot, orderByElements)
-                : subRoot;
-        root = distinct != null ? new LogicalDuplicateEliminationOperator(subRoot) : subRoot;
+        subRoot = orderByElements != null ? new LogicalSortOperator(subRoot, orderByElements) : subRoot;
+        subRoot = distinct != null ? new LogicalDuplicateEliminationOperator(subRoot) : subRoot;
+        root = createLimit(body.getLimit(), body.getOffset(), subRoot);
     }
 
     /** Writes this plan. Assumes a statement was already processed.
@@ -1,6 +1,7 @@
 package com.dbms.queryplan;
 
 import static com.dbms.utils.Helpers.getColumnNamesFromSelectItems;
+import static com.dbms.utils.Helpers.getConjuncts;
 import static com.dbms.utils.Helpers.getEqualityConditions;
 import static com.dbms.utils.Helpers.getProperTableName;
 import static com.dbms.utils.Helpers.isEquiJoin;
@@ -10,6 +11,7 @@ import com.dbms.index.Index;
 import com.dbms.index.IndexExpressionVisitor;
 import com.dbms.operators.logical.LogicalDuplicateEliminationOperator;
 import com.dbms.operators.logical.LogicalJoinOperator;
+import com.dbms.operators.logical.LogicalLimitOperator;
 import com.dbms.operators.logical.LogicalOperator;
 import com.dbms.operators.logical.LogicalProjectOperator;
 import com.dbms.operators.logical.LogicalScanOperator;
@@ -18,21 +20,32 @@ import com.dbms.operators.logical.LogicalSortOperator;
 import com.dbms.operators.physical.BlockNestedLoopJoinOperator;
 import com.dbms.operators.physical.DuplicateEliminationOperator;
 import com.dbms.operators.physical.ExternalSortOperator;
+import com.dbms.operators.physical.HashDuplicateEliminationOperator;
+import com.dbms.operators.physical.HashJoinOperator;
+import com.dbms.operators.physical.IndexNestedLoopJoinOperator;
 import com.dbms.operators.physical.IndexScanOperator;
+import com.dbms.operators.physical.LimitOperator;
 import com.dbms.operators.physical.PhysicalOperator;
 import com.dbms.operators.physical.ProjectOperator;
 import com.dbms.operators.physical.ScanOperator;
 import com.dbms.operators.physical.SelectOperator;
 import com.dbms.operators.physical.SortMergeJoinOperator;
+import com.dbms.operators.physical.TopNOperator;
+import com.dbms.utils.Attribute;
 import com.dbms.utils.Catalog;
+import com.dbms.utils.Range;
 import com.dbms.utils.Schema;
+import com.dbms.utils.TupleReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.schema.Column;
@@ -44,15 +57,53 @@ public class PhysicalPlanBuilder {
     /** Represents the current physical operator */
     public PhysicalOperator physOp;
 
-    /** Construct physical scan from logical scan
+    /** (aliased) attributes that the scans of the plan do not read, which hold 0 in their tuples */
+    private Set<Attribute> skipped = new HashSet<>();
+
+    /** Construct physical scan from logical scan. Only scans of compressed tables skip the
+     * attributes the query does not use, since plain pages are read in full anyway.
      *
      * @param logicalScan is the scan operator from the logical plan */
     public void visit(LogicalScanOperator logicalScan) {
-        physOp = new ScanOperator(logicalScan.tableName);
+        Set<Attribute> attributes = null;
+        try {
+            String path = Catalog.pathToTable(Catalog.getRealTableName(logicalScan.tableName));
+            if (TupleReader.isCompressed(path)) attributes = logicalScan.attributes;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        physOp = new ScanOperator(logicalScan.tableName, attributes);
+        if (attributes == null) return;
+        for (Attribute a : physOp.schema.get()) {
+            if (!attributes.contains(a)) skipped.add(a);
+        }
+    }
+
+    /** @param attributes (aliased) attributes an operator of the plan reads from its child's tuples
+     * @throws IllegalStateException if a scan of the plan does not read one of the attributes */
+    private void requireRead(Collection<Attribute> attributes) {
+        for (Attribute a : attributes) {
+            if (skipped.contains(a)) throw new IllegalStateException("Attribute " + a + " is not read by its scan");
+        }
+    }
+
+    /** @param exp expression an operator of the plan evaluates on its child's tuples, null if none
+     * @throws IllegalStateException if a scan of the plan does not read an attribute of exp */
+    private void requireRead(Expression exp) {
+        if (exp == null) return;
+        AttributeVisitor av = new AttributeVisitor();
+        exp.accept(av);
+        requireRead(av.attributes);
+    }
+
+    /** @param orderBys order by elements of a sort of the plan
+     * @throws IllegalStateException if a scan of the plan does not read an attribute of orderBys */
+    private void requireRead(List<OrderByElement> orderBys) {
+        orderBys.forEach(o -> requireRead(o.getExpression()));
     }
 
     /** Constructs an index scan and a select operator if indexes can be used, otherwise creates a
-     * physical select.
+     * physical select over a scan that skips the pages the table's zone map rules out.
      *
      * @param logicalSelect is the select operator from the logical plan
      * @throws IOException */
@@ -60,16 +111,16 @@ public class PhysicalPlanBuilder {
         String tableName = ((LogicalScanOperator) logicalSelect.child).tableName;
         String unaliasedName = Catalog.getRealTableName(tableName);
         List<Index> indexes = Catalog.getIndexes(unaliasedName);
+        Range[] bounds = getColumnBounds(unaliasedName, logicalSelect.exp);
 
         // if no indexes available, create a scan and select
         if (indexes == null) {
-            logicalSelect.child.accept(this);
-            physOp = new SelectOperator(physOp, logicalSelect.exp);
+            physOp = createScanAndSelect(logicalSelect, bounds);
             return;
         }
 
         // get the scan cost and search for the index with lowest cost
-        double scanCost = Catalog.STATS.getTableScanCost(unaliasedName);
+        double scanCost = Catalog.STATS.getTableScanCost(unaliasedName, bounds);
         IndexExpressionVisitor bestIev = null;
         double bestCost = Integer.MAX_VALUE;
         for (Index i : indexes) {
@@ -86,8 +137,7 @@ public class PhysicalPlanBuilder {
 
         // if scanning is cheaper, use a scan and select, otherwise use the best index
         if (scanCost < bestCost) {
-            logicalSelect.child.accept(this);
-            physOp = new SelectOperator(physOp, logicalSelect.exp);
+            physOp = createScanAndSelect(logicalSelect, bounds);
         } else {
             physOp = new IndexScanOperator(tableName, bestIev.index, bestIev.low, bestIev.high);
             if (!bestIev.nonIndexedExps.isEmpty()) {
@@ -97,6 +147,35 @@ public class PhysicalPlanBuilder {
         }
     }
 
+    /** @param unaliasedName (unaliased) table name
+     * @param exp           select expression on the table
+     * @return inclusive bounds that exp places on each column of the table, in schema order; null
+     *         for columns it does not bound */
+    private static Range[] getColumnBounds(String unaliasedName, Expression exp) {
+        List<Attribute> attributes = Catalog.getAttributes(unaliasedName);
+        Range[] bounds = new Range[attributes.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            IndexExpressionVisitor iev = new IndexExpressionVisitor(new Index(attributes.get(i), 0, false));
+            exp.accept(iev);
+            if (iev.low == null && iev.high == null) continue;
+            bounds[i] = new Range(
+                    iev.low != null ? iev.low : Integer.MIN_VALUE, iev.high != null ? iev.high : Integer.MAX_VALUE);
+        }
+        return bounds;
+    }
+
+    /** @param logicalSelect is the select operator from the logical plan
+     * @param bounds        bounds on each column of the table, as given by {@code getColumnBounds}
+     * @return select operator over a scan of the table that skips pages outside the bounds
+     * @throws IOException */
+    private PhysicalOperator createScanAndSelect(LogicalSelectOperator logicalSelect, Range[] bounds)
+            throws IOException {
+        logicalSelect.child.accept(this);
+        ((ScanOperator) physOp).skipPages(bounds);
+        requireRead(logicalSelect.exp);
+        return new SelectOperator(physOp, logicalSelect.exp);
+    }
+
     /** Construct physical project from logical project
      *
      * @param logicalProject is the project operator from the logical plan
@@ -104,6 +183,7 @@ public class PhysicalPlanBuilder {
     public void visit(LogicalProjectOperator logicalProject) throws IOException {
         logicalProject.child.accept(this);
         Schema s = new Schema(getColumnNamesFromSelectItems(logicalProject.selectItems));
+        requireRead(s.get());
         physOp = new ProjectOperator(physOp, s, true);
     }
 
@@ -113,16 +193,47 @@ public class PhysicalPlanBuilder {
      * @throws IOException */
     public void visit(LogicalSortOperator logicalSort) throws IOException {
         logicalSort.child.accept(this);
+        requireRead(logicalSort.orderBys);
         physOp = new ExternalSortOperator(physOp, logicalSort.orderBys, Catalog.EXTPages);
     }
 
-    /** Construct physical duplicate elimination from logical duplicate elimination
+    /** Construct physical limit from logical limit. A limit directly over a sort becomes a Top-N
+     * operator if the rows it keeps fit on the sort's buffer pages, so the child is never sorted
+     * in full or spilled.
+     *
+     * @param logicalLimit is the limit operator from the logical plan
+     * @throws IOException */
+    public void visit(LogicalLimitOperator logicalLimit) throws IOException {
+        if (logicalLimit.limit != null && logicalLimit.child instanceof LogicalSortOperator) {
+            LogicalSortOperator logicalSort = (LogicalSortOperator) logicalLimit.child;
+            logicalSort.child.accept(this);
+            requireRead(logicalSort.orderBys);
+            long kept = logicalLimit.limit + logicalLimit.offset;
+            long capacity = (long) Catalog.EXTPages * Catalog.BUFFER_PAGE_SIZE / (4 * physOp.schema.size());
+            if (kept <= capacity) {
+                physOp = new TopNOperator(
+                        physOp, logicalSort.orderBys, logicalLimit.limit.intValue(), (int) logicalLimit.offset);
+                return;
+            }
+            physOp = new ExternalSortOperator(physOp, logicalSort.orderBys, Catalog.EXTPages);
+        } else {
+            logicalLimit.child.accept(this);
+        }
+        physOp = new LimitOperator(physOp, logicalLimit.limit, logicalLimit.offset);
+    }
+
+    /** Construct physical duplicate elimination from logical duplicate elimination. Sorted input
+     * is filtered as it is sorted, otherwise duplicates are found by hashing, so the input is never
+     * sorted.
      *
      * @param logicalDupl is the duplicate elimination operator from the physical plan
      * @throws IOException */
     public void visit(LogicalDuplicateEliminationOperator logicalDupl) throws IOException {
         logicalDupl.child.accept(this);
-        physOp = new DuplicateEliminationOperator(physOp);
+        requireRead(physOp.schema.get());
+        physOp = logicalDupl.child instanceof LogicalSortOperator
+                ? new DuplicateEliminationOperator(physOp)
+                : new HashDuplicateEliminationOperator(physOp, Catalog.EXTPages);
     }
 
     /** Constructs the left deep join tree with optimal order. Inserts a project operator at the
@@ -135,7 +246,7 @@ public class PhysicalPlanBuilder {
         JoinOrderOptimizer opt = new JoinOrderOptimizer(logicalJoin);
         // we then create a left deep tree of physical operators using the best join order
         List<String> optOrder = opt.getBestOrder();
-        physOp = createLeftDeepTree(optOrder, logicalJoin, logicalJoin.children);
+        physOp = createLeftDeepTree(optOrder, opt, logicalJoin, logicalJoin.children);
         if (!logicalJoin.tableNames.equals(optOrder)) {
             physOp = new ProjectOperator(physOp, Schema.from(logicalJoin.tableNames), false);
         }
@@ -155,17 +266,32 @@ public class PhysicalPlanBuilder {
         return physOp;
     }
 
-    /** @param left       outer child
+    /** @param left           outer child
      * @param right          inner child
      * @param joinExp        join expression, null if this is a cross product
      * @param innerTableName inner child's table name
-     * @return SMJ operator if joinExp is an equijoin, otherwise a BNLJ operator
+     * @param leftSize       estimated number of outer tuples
+     * @param rightSize      estimated number of inner tuples
+     * @return hash join operator building on the input with the smaller estimated size if joinExp
+     *         is an equijoin, SMJ operator for equijoins if hash joins are disabled, otherwise a
+     *         BNLJ operator
      * @throws IOException */
     private PhysicalOperator selectJoinImplementation(
-            PhysicalOperator left, PhysicalOperator right, Expression joinExp, String innerTableName)
+            PhysicalOperator left,
+            PhysicalOperator right,
+            Expression joinExp,
+            String innerTableName,
+            double leftSize,
+            double rightSize)
             throws IOException {
         if (isEquiJoin(joinExp)) {
             List<EqualsTo> equalityConditions = getEqualityConditions(joinExp);
+            if (Catalog.HASH_JOIN_PAGES > 0) {
+                boolean buildLeft = leftSize * left.schema.size() < rightSize * right.schema.size();
+                int buildRows = (int) Math.min(buildLeft ? leftSize : rightSize, Integer.MAX_VALUE);
+                return new HashJoinOperator(
+                        left, right, equalityConditions, buildLeft, buildRows, Catalog.HASH_JOIN_PAGES);
+            }
             return createSortMergeJoinOperator(equalityConditions, left, right, innerTableName);
         } else {
             return new BlockNestedLoopJoinOperator(left, right, joinExp, Catalog.BNLJPages);
@@ -176,38 +302,111 @@ public class PhysicalPlanBuilder {
      *
      * @param tables   tables to place in tree. If aliases exist, then tables consists solely of
      *                 aliases. Otherwise, tables contains actual table names; tables.length > 1
+     * @param opt      the optimizer that chose the order of tables, for estimated join sizes
      * @param uv       the {@code UnionFindVisitor} for obtaining the join conditions
      * @param children the list of logical scan/select operators corresponding to tables
      * @return a {@code LogicalJoinOperator} containing the left-deep tree
      * @throws IOException, FileNotFoundException */
     private PhysicalOperator createLeftDeepTree(
-            List<String> tables, LogicalJoinOperator logicalJoin, Map<String, LogicalOperator> children)
+            List<String> tables,
+            JoinOrderOptimizer opt,
+            LogicalJoinOperator logicalJoin,
+            Map<String, LogicalOperator> children)
             throws IOException, FileNotFoundException {
         UnionFindVisitor uv = logicalJoin.uv;
 
         String leftName = tables.get(0);
-        PhysicalOperator leftOp = getNextOperator(tables, children);
-
-        String rightName = tables.get(0);
-        PhysicalOperator rightOp = getNextOperator(tables, children);
-
-        Expression joinExp = uv.getExpression(leftName, rightName);
-        PhysicalOperator joinOp = selectJoinImplementation(leftOp, rightOp, joinExp, rightName);
+        PhysicalOperator joinOp = getNextOperator(tables, children);
 
         List<String> seenNames = new ArrayList<>();
         seenNames.add(leftName);
-        seenNames.add(rightName);
 
         while (tables.size() > 0) {
             String nextName = tables.get(0);
-            PhysicalOperator nextOp = getNextOperator(tables, children);
-            joinExp = uv.getExpression(nextName, seenNames);
-            joinOp = selectJoinImplementation(joinOp, nextOp, joinExp, nextName);
+            Expression joinExp = uv.getExpression(nextName, seenNames);
+            requireRead(joinExp);
+            double leftSize = opt.getSize(seenNames);
+            PhysicalOperator indexJoin =
+                    createIndexNestedLoopJoin(joinOp, leftSize, nextName, children.get(nextName), joinExp);
+            if (indexJoin != null) {
+                tables.remove(0);
+                joinOp = indexJoin;
+            } else {
+                PhysicalOperator nextOp = getNextOperator(tables, children);
+                joinOp = selectJoinImplementation(
+                        joinOp, nextOp, joinExp, nextName, leftSize, opt.getSize(List.of(nextName)));
+            }
             seenNames.add(nextName);
         }
         return joinOp;
     }
 
+    /** @param left      outer child
+     * @param leftSize  estimated number of outer tuples
+     * @param innerName (aliased) inner table name
+     * @param inner     the logical scan/select operator of the inner table
+     * @param joinExp   join expression, null if this is a cross product
+     * @return index nested loop join operator probing the index of the inner table with the lowest
+     *         estimated cost, null if no index of the inner table is equated with an outer column
+     *         or joining without an index is estimated to be cheaper
+     * @throws IOException */
+    private PhysicalOperator createIndexNestedLoopJoin(
+            PhysicalOperator left, double leftSize, String innerName, LogicalOperator inner, Expression joinExp)
+            throws IOException {
+        String unaliasedName = Catalog.getRealTableName(innerName);
+        List<Index> indexes = Catalog.getIndexes(unaliasedName);
+        if (indexes == null || joinExp == null) return null;
+
+        double outerPages = Math.max(1, leftSize * left.schema.size() * 4 / Catalog.BUFFER_PAGE_SIZE);
+        double bestCost = getJoinCost(outerPages, Catalog.STATS.getTableScanCost(unaliasedName), joinExp);
+        Index bestIndex = null;
+        Attribute bestKey = null;
+        for (Expression conjunct : getConjuncts(joinExp)) {
+            if (!(conjunct instanceof EqualsTo)) continue;
+            EqualsTo equals = (EqualsTo) conjunct;
+            if (!(equals.getLeftExpression() instanceof Column && equals.getRightExpression() instanceof Column)) {
+                continue;
+            }
+            Column leftCol = (Column) equals.getLeftExpression();
+            Column rightCol = (Column) equals.getRightExpression();
+            boolean leftIsInner = getProperTableName(leftCol.getTable()).equals(innerName);
+            if (leftIsInner == getProperTableName(rightCol.getTable()).equals(innerName)) continue;
+            Column innerCol = leftIsInner ? leftCol : rightCol;
+            Column outerCol = leftIsInner ? rightCol : leftCol;
+            for (Index i : indexes) {
+                if (!i.name.COLUMN.equals(innerCol.getColumnName())) continue;
+                // outer tuples with equal keys share a probe
+                double probes = Math.min(leftSize, Catalog.STATS.getAttributeRange(i.name).extent());
+                double cost = outerPages + probes * Catalog.STATS.getTableIndexCost(i, 1);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestIndex = i;
+                    bestKey = Attribute.fromColumn(outerCol);
+                }
+            }
+        }
+        if (bestIndex == null) return null;
+
+        Expression innerExp = inner instanceof LogicalSelectOperator ? ((LogicalSelectOperator) inner).exp : null;
+        return new IndexNestedLoopJoinOperator(
+                left, innerName, bestIndex, bestKey, innerExp, joinExp, Catalog.BNLJPages);
+    }
+
+    /** @param outerPages estimated number of outer pages
+     * @param innerPages estimated number of inner pages
+     * @param joinExp    join expression, not null
+     * @return estimated I/O cost of the join implementation chosen by selectJoinImplementation */
+    private static double getJoinCost(double outerPages, double innerPages, Expression joinExp) {
+        if (!isEquiJoin(joinExp)) {
+            return outerPages + Math.ceil(outerPages / Catalog.BNLJPages) * innerPages;
+        }
+        if (Catalog.HASH_JOIN_PAGES > 0 && Math.min(outerPages, innerPages) <= Catalog.HASH_JOIN_PAGES) {
+            return outerPages + innerPages;
+        }
+        // spilled partitions or sorted runs are written and read back
+        return 3 * (outerPages + innerPages);
+    }
+
     /** @param equalityConditions list of EqualTo expressions found in the EquiJoin condition
      * @param joinOperator       is the logical join operator
      * @param localLeft          is the local left physical operator
@@ -0,0 +1,402 @@
+package com.dbms.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** A process-wide cache of file pages shared by all page readers. Pages are identified by their
+ * file and 0-based page number. A reader pins a page to use its frame, and unpins it when done;
+ * unpinned frames are recycled with the clock replacement policy. Repeated reads of the same page,
+ * such as rescans of a join inner or descents from a B+ tree root, are served from memory. Readers
+ * that are abandoned before reaching the end of their file keep their page pinned, so when every
+ * frame is pinned the pool lends an extra frame instead of failing the read. An extra frame holds
+ * its page only while it is pinned and is given back on its last unpin, so the pool returns to its
+ * configured number of frames once the pins are released. Frames are enlarged as needed to hold
+ * pages of files with large page sizes, so the memory of the configured frames is bounded by their
+ * number times the largest page size in use.
+ *
+ * <p>Pages are read outside the pool's lock, so readers only wait for each other when they need
+ * the same page. Sequential readers can also ask for pages ahead of time with {@code prefetch},
+ * which reads them on background threads while the reader works on its current page. */
+public class BufferPool {
+
+    /** Marks a frame that holds no page */
+    private static final long EMPTY = -1;
+
+    /** Number of background threads reading prefetched pages */
+    private static final int PREFETCH_THREADS = 2;
+
+    /** Background threads reading prefetched pages, shared by all pools */
+    private static final ExecutorService PREFETCHER = Executors.newFixedThreadPool(PREFETCH_THREADS, r -> {
+        Thread t = new Thread(r, "prefetcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Number of frames the pool keeps; frames past it are extra frames, null once given back */
+    private final int numFrames;
+
+    /** Page data of each frame */
+    private ByteBuffer[] frames;
+
+    /** Key of the page held by each frame, EMPTY if none */
+    private long[] keys;
+
+    /** Number of readers currently using each frame */
+    private int[] pinCounts;
+
+    /** Clock reference bit of each frame, set when the frame is pinned */
+    private boolean[] referenced;
+
+    /** True for frames whose page is still being read from file */
+    private boolean[] loading;
+
+    /** Next frame the clock hand inspects for eviction */
+    private int hand;
+
+    /** Maps page key to the frame holding the page */
+    private Map<Long, Integer> pageTable = new HashMap<>();
+
+    /** Maps normalized file path to the id used in page keys, for files that were neither
+     * invalidated nor deleted since they were last read */
+    private Map<String, Integer> fileIds = new HashMap<>();
+
+    /** Id of the next file read. Ids are not reused, so pages of a forgotten file that are read by
+     * readers still open on it never serve a later file. */
+    private int nextFileId;
+
+    /** Number of pins served from memory */
+    public long hits;
+
+    /** Number of pins that read the page from file */
+    public long misses;
+
+    /** @param numFrames number of pages the pool can hold; at least 1 */
+    public BufferPool(int numFrames) {
+        this.numFrames = numFrames;
+        frames = new ByteBuffer[numFrames];
+        keys = new long[numFrames];
+        pinCounts = new int[numFrames];
+        referenced = new boolean[numFrames];
+        loading = new boolean[numFrames];
+        for (int i = 0; i < numFrames; i++) {
+            frames[i] = ByteBuffer.allocate(IO.PAGE_SIZE);
+            keys[i] = EMPTY;
+        }
+    }
+
+    /** @param path path to a file
+     * @return id of the file in page keys; the same for every path naming the file */
+    public synchronized int fileId(String path) {
+        String name = normalize(path);
+        Integer id = fileIds.get(name);
+        if (id == null) {
+            id = nextFileId++;
+            fileIds.put(name, id);
+        }
+        return id;
+    }
+
+    /** @param path path to a file or directory
+     * @return absolute normalized path */
+    private static String normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+
+    /** @param fileId id of the file, as given by {@code fileId}
+     * @param pageId 0-based page number
+     * @return key of the page in the page table */
+    private static long key(int fileId, int pageId) {
+        return (long) fileId << 32 | pageId;
+    }
+
+    /** Pins the page, reading it from file if it is not in the pool. If the page is being read by
+     * another reader or the prefetcher, waits for that read instead. The page stays in its frame
+     * until every pin of it is released with {@code unpin}.
+     *
+     * @param fileId   id of the file, as given by {@code fileId}
+     * @param pageId   0-based page number
+     * @param pageSize number of bytes per page of the file
+     * @param fc       open channel to the file, used if the page has to be read
+     * @return frame holding the page, -1 if the page is past the end of the file
+     * @throws IOException */
+    public int pin(int fileId, int pageId, int pageSize, FileChannel fc) throws IOException {
+        long key = key(fileId, pageId);
+        int frame;
+        synchronized (this) {
+            Integer cached;
+            while ((cached = pageTable.get(key)) != null && loading[cached]) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (cached != null) {
+                hits++;
+                pinCounts[cached]++;
+                referenced[cached] = true;
+                return cached;
+            }
+            misses++;
+            frame = claim(key, pageSize);
+        }
+        return fill(frame, pageId, pageSize, fc) ? frame : -1;
+    }
+
+    /** Starts reading the page into the pool on a background thread, unless it is already there.
+     * The page is not pinned, so it may be evicted again before it is used. Reads that fail, for
+     * example because the reader closed its channel in the meantime, are dropped.
+     *
+     * @param fileId   id of the file, as given by {@code fileId}
+     * @param pageId   0-based page number
+     * @param pageSize number of bytes per page of the file
+     * @param fc       open channel to the file */
+    public void prefetch(int fileId, int pageId, int pageSize, FileChannel fc) {
+        PREFETCHER.execute(() -> {
+            int frame;
+            synchronized (this) {
+                long key = key(fileId, pageId);
+                if (pageTable.containsKey(key)) return;
+                frame = findVictim();
+                if (frame == -1) return;
+                assign(frame, key, pageSize);
+            }
+            try {
+                if (fill(frame, pageId, pageSize, fc)) unpin(frame);
+            } catch (IOException e) {
+                // the page is read again when it is pinned
+            }
+        });
+    }
+
+    /** Starts reading the page into the pool on a background thread, unless it is already there,
+     * and pins it for the caller, so it stays in the pool until the caller releases it with
+     * {@code unpin}. Nothing is read if every frame is pinned.
+     *
+     * @param fileId   id of the file, as given by {@code fileId}
+     * @param pageId   0-based page number
+     * @param pageSize number of bytes per page of the file
+     * @param fc       open channel to the file
+     * @return frame pinned for the page, -1 if the page was not requested */
+    public int prefetchPinned(int fileId, int pageId, int pageSize, FileChannel fc) {
+        int frame;
+        synchronized (this) {
+            long key = key(fileId, pageId);
+            Integer cached = pageTable.get(key);
+            if (cached != null) {
+                pinCounts[cached]++;
+                referenced[cached] = true;
+                return cached;
+            }
+            frame = findVictim();
+            if (frame == -1) return -1;
+            assign(frame, key, pageSize);
+            pinCounts[frame]++;
+        }
+        PREFETCHER.execute(() -> {
+            try {
+                if (fill(frame, pageId, pageSize, fc)) unpin(frame);
+            } catch (IOException e) {
+                // the page is read again when it is pinned
+            }
+        });
+        return frame;
+    }
+
+    /** Evicts a victim frame, or lends an extra frame if every frame is pinned, and assigns it to
+     * the page. Must be called while holding the pool's lock.
+     *
+     * @param key      key of the page
+     * @param pageSize number of bytes per page of the file
+     * @return frame assigned to the page */
+    private int claim(long key, int pageSize) {
+        int frame = findVictim();
+        if (frame == -1) frame = addFrame();
+        assign(frame, key, pageSize);
+        return frame;
+    }
+
+    /** Assigns a free or evicted frame to the page, pinned and marked as loading. Must be called
+     * while holding the pool's lock.
+     *
+     * @param frame    frame to assign
+     * @param key      key of the page
+     * @param pageSize number of bytes per page of the file */
+    private void assign(int frame, long key, int pageSize) {
+        if (frames[frame].capacity() < pageSize) frames[frame] = ByteBuffer.allocate(pageSize);
+        dropPage(frame);
+        keys[frame] = key;
+        pageTable.put(key, frame);
+        pinCounts[frame] = 1;
+        referenced[frame] = true;
+        loading[frame] = true;
+    }
+
+    /** Reads the page into its claimed frame without holding the pool's lock, then wakes readers
+     * waiting for it. If the page is past the end of the file or the read fails, the frame is
+     * released.
+     *
+     * @param frame    frame returned by {@code claim}
+     * @param pageId   0-based page number
+     * @param pageSize number of bytes per page of the file
+     * @param fc       open channel to the file
+     * @return true if the page was read
+     * @throws IOException */
+    private boolean fill(int frame, int pageId, int pageSize, FileChannel fc) throws IOException {
+        boolean filled = false;
+        try {
+            ByteBuffer page = page(frame);
+            page.clear();
+            page.limit(pageSize);
+            long start = (long) pageId * pageSize;
+            int bytesRead = fc.read(page, start);
+            filled = bytesRead != -1;
+            while (bytesRead > 0 && page.hasRemaining()) bytesRead = fc.read(page, start + page.position());
+        } finally {
+            synchronized (this) {
+                loading[frame] = false;
+                if (!filled) {
+                    dropPage(frame);
+                    release(frame);
+                }
+                notifyAll();
+            }
+        }
+        return filled;
+    }
+
+    /** @param frame frame returned by {@code pin}; must still be pinned
+     * @return page data of the frame; only absolute reads may be used */
+    public synchronized ByteBuffer page(int frame) {
+        return frames[frame];
+    }
+
+    /** Releases one pin of the frame.
+     *
+     * @param frame frame returned by {@code pin} */
+    public synchronized void unpin(int frame) {
+        release(frame);
+    }
+
+    /** Releases one pin of the frame, and gives the frame back if it is an extra frame that is no
+     * longer pinned. Must be called while holding the pool's lock.
+     *
+     * @param frame pinned frame */
+    private void release(int frame) {
+        if (--pinCounts[frame] > 0 || frame < numFrames) return;
+        dropPage(frame);
+        frames[frame] = null;
+        int length = frames.length;
+        while (length > numFrames && frames[length - 1] == null) length--;
+        if (length < frames.length) resize(length);
+    }
+
+    /** Removes the page of the frame from the page table, if the frame still holds it. Must be
+     * called while holding the pool's lock.
+     *
+     * @param frame frame */
+    private void dropPage(int frame) {
+        if (keys[frame] == EMPTY) return;
+        Integer cached = pageTable.get(keys[frame]);
+        if (cached != null && cached == frame) pageTable.remove(keys[frame]);
+        keys[frame] = EMPTY;
+    }
+
+    /** Drops every page of the file from the pool and forgets its id, so the file is read under a
+     * new id next time. Must be called before the file is rewritten, so that later reads do not
+     * see stale pages. Pinned pages are dropped as well: their readers keep using the frame's
+     * contents until they unpin it, but no later pin is served from it.
+     *
+     * @param path path to the file */
+    public synchronized void invalidate(String path) {
+        Integer fileId = fileIds.remove(normalize(path));
+        if (fileId != null) dropPages(Set.of(fileId));
+    }
+
+    /** Drops every page of the files in a directory and its subdirectories from the pool and
+     * forgets their ids. Called when the files are deleted, such as the temp files of a query.
+     *
+     * @param path path to the directory */
+    public synchronized void invalidateDirectory(String path) {
+        String prefix = normalize(path) + File.separator;
+        Set<Integer> ids = new HashSet<>();
+        Iterator<Map.Entry<String, Integer>> it = fileIds.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                ids.add(entry.getValue());
+                it.remove();
+            }
+        }
+        if (!ids.isEmpty()) dropPages(ids);
+    }
+
+    /** Drops every page of the files from the pool. Must be called while holding the pool's lock.
+     *
+     * @param ids ids of the files */
+    private void dropPages(Set<Integer> ids) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && ids.contains((int) (keys[i] >>> 32))) dropPage(i);
+        }
+    }
+
+    /** Advances the clock hand over the pool's configured frames until it finds an unpinned frame
+     * whose reference bit is clear, clearing the reference bits it passes.
+     *
+     * @return frame to reuse, -1 if every frame is pinned */
+    private int findVictim() {
+        for (int i = 0; i < 2 * numFrames; i++) {
+            int frame = hand;
+            hand = (hand + 1) % numFrames;
+            if (pinCounts[frame] > 0) continue;
+            if (keys[frame] == EMPTY || !referenced[frame]) return frame;
+            referenced[frame] = false;
+        }
+        return -1;
+    }
+
+    /** Lends an extra frame, reusing a slot of one that was given back if there is one. Must be
+     * called while holding the pool's lock.
+     *
+     * @return extra frame */
+    private int addFrame() {
+        int frame = numFrames;
+        while (frame < frames.length && frames[frame] != null) frame++;
+        if (frame == frames.length) resize(frame + 1);
+        frames[frame] = ByteBuffer.allocate(IO.PAGE_SIZE);
+        keys[frame] = EMPTY;
+        return frame;
+    }
+
+    /** @param length new number of frame slots */
+    private void resize(int length) {
+        frames = Arrays.copyOf(frames, length);
+        keys = Arrays.copyOf(keys, length);
+        pinCounts = Arrays.copyOf(pinCounts, length);
+        referenced = Arrays.copyOf(referenced, length);
+        loading = Arrays.copyOf(loading, length);
+    }
+
+    /** @return number of files the pool keeps an id for */
+    public synchronized int files() {
+        return fileIds.size();
+    }
+
+    /** @return number of frames in the pool, including extra frames that are lent out */
+    public synchronized int size() {
+        return frames.length;
+    }
+}
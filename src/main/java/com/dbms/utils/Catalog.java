@@ -14,7 +14,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -57,6 +59,66 @@ public class Catalog {
     /** Number of pages to use in BNLJ */
     public static int BNLJPages = 5;
 
+    /** Optional settings listed in the configuration file after the directory paths. Maps the
+     * setting name (first word of the line) to the remaining words of the line. */
+    private static Map<String, List<String>> settings = new HashMap<>();
+
+    /** Number of page frames in the buffer pool when the configuration file does not set one */
+    private static final int DEFAULT_POOL_FRAMES = 1024;
+
+    /** Buffer pool shared by all readers of table, index and temporary files */
+    public static BufferPool BUFFER_POOL = new BufferPool(DEFAULT_POOL_FRAMES);
+
+    /** Number of pages sequential readers prefetch when the configuration file does not set it */
+    private static final int DEFAULT_READ_AHEAD = 8;
+
+    /** Number of pages that sequential readers (table scans and readers of sorted output) keep in
+     * flight ahead of the page they are reading; sort merges plan their reads from their own
+     * buffer pages instead */
+    public static int READ_AHEAD_PAGES = DEFAULT_READ_AHEAD;
+
+    /** Number of pages writers collect per background write when the configuration file does not
+     * set it */
+    private static final int DEFAULT_WRITE_BEHIND = 4;
+
+    /** Number of pages that writers of sort runs and query results collect before writing them in
+     * the background */
+    public static int WRITE_BEHIND_PAGES = DEFAULT_WRITE_BEHIND;
+
+    /** Number of bytes per page of sort run files, which is also the page size that the external
+     * sort and BNLJ buffer page counts refer to */
+    public static int BUFFER_PAGE_SIZE = IO.PAGE_SIZE;
+
+    /** Number of bytes per page of index files */
+    public static int INDEX_PAGE_SIZE = IO.PAGE_SIZE;
+
+    /** True if sort run files are written with compressed pages */
+    public static boolean COMPRESS_RUNS;
+
+    /** Number of threads sorting runs when the configuration file does not set it. Each worker
+     * holds a run of the sort's buffer pages, so the default keeps a sort within its pages. */
+    private static final int DEFAULT_SORT_WORKERS = 1;
+
+    /** Number of runs an external sort sorts and writes concurrently while reading the next run
+     * from its child; 1 sorts every run on the calling thread. With more workers, the initial pass
+     * of a sort holds up to SORT_WORKERS + 1 runs, each of the sort's buffer pages. */
+    public static int SORT_WORKERS = DEFAULT_SORT_WORKERS;
+
+    /** True if external sorts create their initial runs by replacement selection instead of
+     * sorting runs of the buffer pages */
+    public static boolean REPLACEMENT_SELECTION;
+
+    /** True if the final merge pass of external sorts is split into key ranges merged on separate
+     * threads */
+    public static boolean PARTITIONED_MERGE;
+
+    /** Number of buffer pages a hash join may fill when the configuration file does not set it */
+    private static final int DEFAULT_HASH_JOIN_PAGES = 256;
+
+    /** Number of buffer pages that the build input of a hash join may fill before it spills
+     * partitions to the temp directory; 0 makes equi-joins use sort-merge join */
+    public static int HASH_JOIN_PAGES = DEFAULT_HASH_JOIN_PAGES;
+
     /** @param segments file path to join
      * @return segments joined with File.seperator */
     private static String join(String... segments) {
@@ -70,7 +132,41 @@ public class Catalog {
         return new BufferedReader(new FileReader(join(path)));
     }
 
-    /** Initializes the catalog with the info from the file in {@code path}
+    /** Initializes the catalog with the info from the file in {@code path}. The first three lines
+     * are the input, output and temp directories. Each following line is an optional setting of
+     * the form {@code name value...}:
+     *
+     * <ul>
+     * <li>{@code mmap all} or {@code mmap table...}: read all tables, or only the listed tables,
+     * and their indexes through memory maps
+     * <li>{@code bufferpool frames}: number of pages held by the shared buffer pool, 1024 by
+     * default
+     * <li>{@code readahead pages}: number of pages table scans and sort run readers prefetch, 8
+     * by default; 0 disables prefetching
+     * <li>{@code writebehind pages}: number of pages sort runs and query results are written in
+     * per background write, 4 by default; 0 writes every page synchronously
+     * <li>{@code pagesize bytes}: page size of sort run files and of the buffer pages used by
+     * external sort and BNLJ, 4096 by default
+     * <li>{@code indexpagesize bytes}: page size of index files, 4096 by default
+     * <li>{@code tablepagesize bytes all} or {@code tablepagesize bytes table...}: rewrites all
+     * tables, or only the listed tables, with the given page size
+     * <li>{@code compress name...}: compresses the pages of sort runs if a name is {@code runs},
+     * of all tables if a name is {@code all}, and of every listed table; tables are rewritten
+     * compressed, and compressed tables that are not listed are rewritten with plain pages
+     * <li>{@code hashjoin pages}: number of buffer pages the build input of a hash join may fill
+     * before partitions spill to the temp directory, 256 by default; 0 disables hash joins
+     * <li>{@code sortworkers threads}: number of runs an external sort sorts and writes at once,
+     * 1 by default, which sorts runs on the calling thread. Runs being sorted are held in memory
+     * while the next run is read, so the initial pass uses up to (threads + 1) times the sort's
+     * buffer pages; merge passes stay within the sort's buffer pages
+     * <li>{@code sortruns replacement}: creates the initial runs of external sorts by replacement
+     * selection, which gives runs of about twice the buffer pages on random input and a single run
+     * on sorted input
+     * <li>{@code sortmerge partitioned}: splits the final merge pass of external sorts into as many
+     * key ranges as sort workers, sampled from the runs, and merges the ranges concurrently
+     * </ul>
+     *
+     * <p>Page sizes must be powers of two from 4096 to 1048576 bytes.
      *
      * @param path file containing the configuration info
      * @throws IOException */
@@ -79,10 +175,88 @@ public class Catalog {
         Catalog.input = br.readLine();
         Catalog.output = br.readLine();
         Catalog.temp = br.readLine();
+        settings = getSettings(br);
         br.close();
+        BUFFER_POOL = new BufferPool(getIntSetting("bufferpool", DEFAULT_POOL_FRAMES));
+        READ_AHEAD_PAGES = getIntSetting("readahead", DEFAULT_READ_AHEAD);
+        WRITE_BEHIND_PAGES = getIntSetting("writebehind", DEFAULT_WRITE_BEHIND);
+        BUFFER_PAGE_SIZE = IO.checkPageSize(getIntSetting("pagesize", IO.PAGE_SIZE));
+        INDEX_PAGE_SIZE = IO.checkPageSize(getIntSetting("indexpagesize", IO.PAGE_SIZE));
+        COMPRESS_RUNS = settings.getOrDefault("compress", List.of()).contains("runs");
+        HASH_JOIN_PAGES = getIntSetting("hashjoin", DEFAULT_HASH_JOIN_PAGES);
+        SORT_WORKERS = getIntSetting("sortworkers", DEFAULT_SORT_WORKERS);
+        REPLACEMENT_SELECTION = settings.getOrDefault("sortruns", List.of()).contains("replacement");
+        PARTITIONED_MERGE = settings.getOrDefault("sortmerge", List.of()).contains("partitioned");
         schema = getSchema(Catalog.input);
+        List<String> rewritten = rewriteTables();
         INDEXES = getIndexInfo(readerFromPath(Catalog.input, "db", "index_info.txt"));
         STATS = new Stats(new BufferedWriter(new FileWriter(join(input, "db", "stats.txt"))), schema);
+        for (String table : rewritten) INDEXES.getOrDefault(table, List.of()).forEach(TreeIndexBuilder::serialize);
+    }
+
+    /** @param br reader positioned after the directory lines of the configuration file
+     * @return map from setting name to its values
+     * @throws IOException */
+    private static Map<String, List<String>> getSettings(BufferedReader br) throws IOException {
+        Map<String, List<String>> settings = new HashMap<>();
+        String line;
+        while ((line = br.readLine()) != null) {
+            String[] words = line.trim().split("\\s+");
+            if (words[0].isEmpty()) continue;
+            settings.put(words[0], Arrays.asList(words).subList(1, words.length));
+        }
+        return settings;
+    }
+
+    /** @param name         setting name
+     * @param defaultValue value to use if the setting is absent
+     * @return the setting's first value as an integer */
+    private static int getIntSetting(String name, int defaultValue) {
+        List<String> values = settings.get(name);
+        return values == null ? defaultValue : Integer.parseInt(values.get(0));
+    }
+
+    /** @param tableName (unaliased) table name
+     * @return true if the table and its indexes should be read through memory maps */
+    public static boolean isMemoryMapped(String tableName) {
+        List<String> tables = settings.get("mmap");
+        return tables != null && (tables.contains("all") || tables.contains(tableName));
+    }
+
+    /** Rewrites the tables whose files do not have the page size of the {@code tablepagesize}
+     * setting or are not compressed as required by the {@code compress} setting. The indexes of
+     * rewritten tables must be rebuilt, since RIDs change.
+     *
+     * @return (unaliased) names of the rewritten tables
+     * @throws IOException */
+    private static List<String> rewriteTables() throws IOException {
+        List<String> rewrittenTables = new LinkedList<>();
+        List<String> sizes = settings.getOrDefault("tablepagesize", List.of());
+        List<String> sized = sizes.isEmpty() ? sizes : sizes.subList(1, sizes.size());
+        List<String> compressed = settings.getOrDefault("compress", List.of());
+        for (String table : schema.keySet()) {
+            String path = pathToTable(table);
+            TupleReader tr = new TupleReader(path);
+            int pageSize = tr.getPageSize();
+            if (sized.contains("all") || sized.contains(table)) {
+                pageSize = IO.checkPageSize(Integer.parseInt(sizes.get(0)));
+            }
+            boolean compress = compressed.contains("all") || compressed.contains(table);
+            if (pageSize == tr.getPageSize() && compress == tr.isCompressed()) {
+                tr.close();
+                continue;
+            }
+            String rewritten = path + ".rewritten";
+            TupleWriter tw = new TupleWriter(rewritten, 0, pageSize, compress);
+            int[] row = new int[schema.get(table).size()];
+            while (tr.nextTuple(row)) tw.writeTuple(row);
+            tr.close();
+            tw.close();
+            Files.move(Paths.get(rewritten), Paths.get(path), StandardCopyOption.REPLACE_EXISTING);
+            BUFFER_POOL.invalidate(path);
+            rewrittenTables.add(table);
+        }
+        return rewrittenTables;
     }
 
     public static void setSchema(Map<String, List<Attribute>> s) {
@@ -238,10 +412,12 @@ public class Catalog {
         new File(join(temp, id)).mkdir();
     }
 
-    /** Deletes everything in the temp directory when application is finished running
+    /** Deletes everything in the temp directory when application is finished running, and drops
+     * the pages of the deleted files from the buffer pool
      *
      * @throws IOException */
     public static void cleanTempDir() throws IOException {
+        BUFFER_POOL.invalidateDirectory(temp);
         Files.walkFileTree(Paths.get(temp), new SimpleFileVisitor<Path>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
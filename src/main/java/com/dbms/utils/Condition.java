@@ -0,0 +1,28 @@
+package com.dbms.utils;
+
+/** A condition compiled by {@code ConditionCompiler} from a select or join expression. A condition
+ * evaluates a row, or the concatenation of a left and right row, held in parts of int arrays, with
+ * every column already resolved to its position in the row. */
+@FunctionalInterface
+public interface Condition {
+
+    /** @param left        values of the left row
+     * @param leftOffset  index of the left row's first value in left
+     * @param right       values of the right row, null if the condition is over a single row
+     * @param rightOffset index of the right row's first value in right
+     * @return true if the rows satisfy the condition */
+    boolean test(int[] left, int leftOffset, int[] right, int rightOffset);
+
+    /** @param t tuple with the schema the condition was compiled for
+     * @return true if the tuple satisfies the condition */
+    default boolean test(Tuple t) {
+        return test(t.values(), 0, null, 0);
+    }
+
+    /** @param left  tuple with the left schema the condition was compiled for
+     * @param right tuple with the right schema the condition was compiled for
+     * @return true if the concatenation of the tuples satisfies the condition */
+    default boolean test(Tuple left, Tuple right) {
+        return test(left.values(), 0, right.values(), 0);
+    }
+}
@@ -0,0 +1,263 @@
+package com.dbms.utils;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+/** A visitor that compiles the expressions evaluated by {@code ExpressionParseVisitor} into a
+ * {@code Condition}. The expression tree is walked once: columns are resolved to their positions
+ * in the row, constant comparisons are folded, comparisons of a column with a constant get their
+ * own lambdas, and AND evaluates its right side only if its left side holds. */
+public class ConditionCompiler extends ExpressionVisitorBase {
+
+    /** Reads an operand of a comparison from the rows being evaluated */
+    @FunctionalInterface
+    private interface Operand {
+        long get(int[] left, int leftOffset, int[] right, int rightOffset);
+    }
+
+    /** Comparison operators */
+    private enum Op {
+        EQ,
+        NE,
+        LT,
+        LE,
+        GT,
+        GE
+    }
+
+    /** Schema of the row, or of the concatenation of the left and right rows */
+    private Schema schema;
+
+    /** Number of columns of the left row; columns at or after this position are in the right row */
+    private int leftWidth;
+
+    /** Condition compiled from the most recently visited boolean expression */
+    private Condition condition;
+
+    /** Operand compiled from the most recently visited column or value */
+    private Operand operand;
+
+    /** Position in its row of the most recently visited column, -1 after a value */
+    private int slot;
+
+    /** True if the most recently visited column is in the right row */
+    private boolean inRight;
+
+    /** Value of the most recently visited long value */
+    private long constant;
+
+    /** @param schema    schema of the row, or of the concatenation of the left and right rows
+     * @param leftWidth number of columns of the left row */
+    private ConditionCompiler(Schema schema, int leftWidth) {
+        this.schema = schema;
+        this.leftWidth = leftWidth;
+    }
+
+    /** @param exp    select expression
+     * @param schema schema of the rows the condition evaluates
+     * @return condition evaluating exp over a single row */
+    public static Condition compile(Expression exp, Schema schema) {
+        return new ConditionCompiler(schema, schema.size()).compileCondition(exp);
+    }
+
+    /** @param exp   join expression
+     * @param left  schema of the left rows
+     * @param right schema of the right rows
+     * @return condition evaluating exp over a left and a right row */
+    public static Condition compile(Expression exp, Schema left, Schema right) {
+        return new ConditionCompiler(Schema.join(left, right), left.size()).compileCondition(exp);
+    }
+
+    /** @param exp boolean expression
+     * @return the compiled condition */
+    private Condition compileCondition(Expression exp) {
+        exp.accept(this);
+        return condition;
+    }
+
+    /** Compiles a comparison operand.
+     *
+     * @param exp column or long value
+     * @return the compiled operand; slot, inRight and constant describe it */
+    private Operand compileOperand(Expression exp) {
+        exp.accept(this);
+        return operand;
+    }
+
+    /** @param exp comparison expression
+     * @param op  comparison operator */
+    private void compileComparison(BinaryExpression exp, Op op) {
+        Operand a = compileOperand(exp.getLeftExpression());
+        int aSlot = slot;
+        boolean aRight = inRight;
+        long aValue = constant;
+        Operand b = compileOperand(exp.getRightExpression());
+        int bSlot = slot;
+        boolean bRight = inRight;
+        long bValue = constant;
+
+        if (aSlot == -1 && bSlot == -1) {
+            boolean result = compare(aValue, bValue, op);
+            condition = (l, lo, r, ro) -> result;
+        } else if (bSlot == -1 && !aRight) {
+            condition = columnWithConstant(aSlot, bValue, op);
+        } else if (aSlot == -1 && !bRight) {
+            condition = columnWithConstant(bSlot, aValue, flip(op));
+        } else {
+            condition = operands(a, b, op);
+        }
+    }
+
+    /** @param slot  position of the column in the left row
+     * @param value constant the column is compared with
+     * @param op    comparison operator, with the column on the left
+     * @return condition comparing the column with the constant */
+    private static Condition columnWithConstant(int slot, long value, Op op) {
+        switch (op) {
+            case EQ:
+                return (l, lo, r, ro) -> l[lo + slot] == value;
+            case NE:
+                return (l, lo, r, ro) -> l[lo + slot] != value;
+            case LT:
+                return (l, lo, r, ro) -> l[lo + slot] < value;
+            case LE:
+                return (l, lo, r, ro) -> l[lo + slot] <= value;
+            case GT:
+                return (l, lo, r, ro) -> l[lo + slot] > value;
+            default:
+                return (l, lo, r, ro) -> l[lo + slot] >= value;
+        }
+    }
+
+    /** @param a  left operand
+     * @param b  right operand
+     * @param op comparison operator
+     * @return condition comparing the operands */
+    private static Condition operands(Operand a, Operand b, Op op) {
+        switch (op) {
+            case EQ:
+                return (l, lo, r, ro) -> a.get(l, lo, r, ro) == b.get(l, lo, r, ro);
+            case NE:
+                return (l, lo, r, ro) -> a.get(l, lo, r, ro) != b.get(l, lo, r, ro);
+            case LT:
+                return (l, lo, r, ro) -> a.get(l, lo, r, ro) < b.get(l, lo, r, ro);
+            case LE:
+                return (l, lo, r, ro) -> a.get(l, lo, r, ro) <= b.get(l, lo, r, ro);
+            case GT:
+                return (l, lo, r, ro) -> a.get(l, lo, r, ro) > b.get(l, lo, r, ro);
+            default:
+                return (l, lo, r, ro) -> a.get(l, lo, r, ro) >= b.get(l, lo, r, ro);
+        }
+    }
+
+    /** @param a  left value
+     * @param b  right value
+     * @param op comparison operator
+     * @return result of comparing the values */
+    private static boolean compare(long a, long b, Op op) {
+        switch (op) {
+            case EQ:
+                return a == b;
+            case NE:
+                return a != b;
+            case LT:
+                return a < b;
+            case LE:
+                return a <= b;
+            case GT:
+                return a > b;
+            default:
+                return a >= b;
+        }
+    }
+
+    /** @param op comparison operator
+     * @return operator giving the same result with its operands swapped */
+    private static Op flip(Op op) {
+        switch (op) {
+            case LT:
+                return Op.GT;
+            case LE:
+                return Op.GE;
+            case GT:
+                return Op.LT;
+            case GE:
+                return Op.LE;
+            default:
+                return op;
+        }
+    }
+
+    /** compiles A AND B, evaluating B only if A holds */
+    @Override
+    public void visit(AndExpression exp) {
+        Condition a = compileCondition(exp.getLeftExpression());
+        Condition b = compileCondition(exp.getRightExpression());
+        condition = (l, lo, r, ro) -> a.test(l, lo, r, ro) && b.test(l, lo, r, ro);
+    }
+
+    /** compiles A == B */
+    @Override
+    public void visit(EqualsTo exp) {
+        compileComparison(exp, Op.EQ);
+    }
+
+    /** compiles A strictly greater than B */
+    @Override
+    public void visit(GreaterThan exp) {
+        compileComparison(exp, Op.GT);
+    }
+
+    /** compiles A greater than or equal to B */
+    @Override
+    public void visit(GreaterThanEquals exp) {
+        compileComparison(exp, Op.GE);
+    }
+
+    /** compiles A strictly less than B */
+    @Override
+    public void visit(MinorThan exp) {
+        compileComparison(exp, Op.LT);
+    }
+
+    /** compiles A less than or equal to B */
+    @Override
+    public void visit(MinorThanEquals exp) {
+        compileComparison(exp, Op.LE);
+    }
+
+    /** compiles A not equal to B */
+    @Override
+    public void visit(NotEqualsTo exp) {
+        compileComparison(exp, Op.NE);
+    }
+
+    /** compiles a long value */
+    @Override
+    public void visit(LongValue longValue) {
+        long value = longValue.getValue();
+        constant = value;
+        slot = -1;
+        inRight = false;
+        operand = (l, lo, r, ro) -> value;
+    }
+
+    /** compiles a column reference to a read of its position in the left or right row */
+    @Override
+    public void visit(Column col) {
+        int position = schema.indexOf(Attribute.fromColumn(col));
+        inRight = position >= leftWidth;
+        slot = inRight ? position - leftWidth : position;
+        int s = slot;
+        operand = inRight ? (l, lo, r, ro) -> r[ro + s] : (l, lo, r, ro) -> l[lo + s];
+    }
+}
@@ -1,5 +1,7 @@
 package com.dbms.utils;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
@@ -24,9 +26,14 @@ public class ExpressionParseVisitor extends ExpressionVisitorBase {
     /** The most recent result of any boolean evaluation. */
     public boolean booleanResult;
 
-    /** The current Tuple for which to evaluate the expression */
+    /** The current Tuple for which to evaluate the expression. All tuples evaluated by one visitor
+     * must share the same schema. */
     public Tuple currentTuple;
 
+    /** Maps each visited column node to its position in the schema of the evaluated tuples, so
+     * columns are resolved against the schema only once per visitor */
+    private Map<Column, Integer> slots = new IdentityHashMap<>();
+
     /**
      * @param exp The expression which the visitor evaluates
      * @return the boolean result of evaluating exp
@@ -110,6 +117,11 @@ public class ExpressionParseVisitor extends ExpressionVisitorBase {
     /** Evaluates a column reference by looking up the corresponding column in the current Tuple */
     @Override
     public void visit(Column col) {
-        longResult = currentTuple.get(Attribute.fromColumn(col));
+        Integer slot = slots.get(col);
+        if (slot == null) {
+            slot = currentTuple.getSchema().indexOf(Attribute.fromColumn(col));
+            slots.put(col, slot);
+        }
+        longResult = currentTuple.get(slot);
     }
 }
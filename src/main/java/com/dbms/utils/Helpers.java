@@ -116,6 +116,20 @@ public class Helpers {
         return result;
     }
 
+    /** @param exp expression, null if none
+     * @return the conjuncts of exp in order, empty if exp is null */
+    public static List<Expression> getConjuncts(Expression exp) {
+        List<Expression> result = new LinkedList<>();
+        if (exp instanceof AndExpression) {
+            AndExpression and = (AndExpression) exp;
+            result.addAll(getConjuncts(and.getLeftExpression()));
+            result.addAll(getConjuncts(and.getRightExpression()));
+        } else if (exp != null) {
+            result.add(exp);
+        }
+        return result;
+    }
+
     /** @param exp The Expression associated with the JoinOperator.
      * @return {@code true} when {@code exp} has only {@code EqualsTo} conditions, {@code false}
      *         otherwise */
@@ -8,8 +8,19 @@ import java.nio.channels.FileChannel;
 @SuppressWarnings("all")
 public class IO {
 
-    /** Bytes per page */
-    protected static final int PAGE_SIZE = 4096;
+    /** Default and smallest number of bytes per page */
+    public static final int PAGE_SIZE = 4096;
+
+    /** Largest number of bytes per page */
+    public static final int MAX_PAGE_SIZE = 1 << 20;
+
+    /** Flag set in the first header integer of compressed pages, above the page size code */
+    protected static final int COMPRESSED = 1 << 24;
+
+    /** Bytes per page of the file being read or written. Files record their page size in their
+     * headers as a code, {@code log2(pageSize / PAGE_SIZE)}, which is 0 for files of the default
+     * page size. */
+    protected int pageSize = PAGE_SIZE;
 
     /** IO buffer */
     protected ByteBuffer buffer;
@@ -29,7 +40,31 @@ public class IO {
     /** Clears the buffer by filling it with zeros and resetting the position to the front. */
     protected void clearBuffer() {
         buffer.clear();
-        buffer.put(new byte[PAGE_SIZE]); // hack to reset with zeros
+        buffer.put(new byte[buffer.capacity()]); // hack to reset with zeros
         buffer.clear();
     }
+
+    /** @param pageSize number of bytes per page
+     * @return pageSize
+     * @throws IllegalArgumentException if pageSize is not a power of two between PAGE_SIZE and
+     *                                  MAX_PAGE_SIZE */
+    public static int checkPageSize(int pageSize) {
+        if (pageSize < PAGE_SIZE || pageSize > MAX_PAGE_SIZE || Integer.bitCount(pageSize) != 1) {
+            throw new IllegalArgumentException("Page size must be a power of two from " + PAGE_SIZE + " to "
+                    + MAX_PAGE_SIZE + ", got " + pageSize);
+        }
+        return pageSize;
+    }
+
+    /** @param pageSize number of bytes per page; a valid page size
+     * @return code recording the page size in file headers */
+    protected static int pageSizeCode(int pageSize) {
+        return Integer.numberOfTrailingZeros(pageSize / PAGE_SIZE);
+    }
+
+    /** @param code page size code read from a file header
+     * @return number of bytes per page */
+    protected static int pageSizeFromCode(int code) {
+        return PAGE_SIZE << code;
+    }
 }
@@ -0,0 +1,89 @@
+package com.dbms.utils;
+
+/** Sorting of primitive keys, used in place of comparator sorts over tuples. Two int columns are
+ * packed into one long key whose signed order is the order of the columns, and keys are sorted
+ * with an LSD radix sort that carries an int value, such as a row position, with each key. */
+public final class KeySort {
+
+    /** Number of bits sorted per radix pass */
+    private static final int RADIX_BITS = 8;
+
+    /** Number of buckets per radix pass */
+    private static final int BUCKETS = 1 << RADIX_BITS;
+
+    /** Number of radix passes over a long key */
+    private static final int PASSES = Long.SIZE / RADIX_BITS;
+
+    private KeySort() {}
+
+    /** @param high first column
+     * @param low  second column
+     * @return key that orders like high, then low */
+    public static long pack(int high, int low) {
+        return (long) high << 32 | (low ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
+    /** @param key packed key
+     * @return first column of the key */
+    public static int high(long key) {
+        return (int) (key >> 32);
+    }
+
+    /** @param key packed key
+     * @return second column of the key */
+    public static int low(long key) {
+        return (int) key ^ Integer.MIN_VALUE;
+    }
+
+    /** Sorts the first n keys in ascending signed order, moving each value with its key. The sort
+     * is stable, and skips the passes over bytes that every key shares.
+     *
+     * @param keys   keys to sort
+     * @param values value of each key
+     * @param n      number of keys to sort */
+    public static void radixSort(long[] keys, int[] values, int n) {
+        int[][] counts = new int[PASSES][BUCKETS];
+        for (int i = 0; i < n; i++) {
+            long key = keys[i];
+            for (int p = 0; p < PASSES; p++) counts[p][digit(key, p)]++;
+        }
+
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] dstKeys = new long[n];
+        int[] dstValues = new int[n];
+        for (int p = 0; p < PASSES; p++) {
+            int[] count = counts[p];
+            if (n == 0 || count[digit(srcKeys[0], p)] == n) continue;
+            int offset = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                int c = count[b];
+                count[b] = offset;
+                offset += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int at = count[digit(srcKeys[i], p)]++;
+                dstKeys[at] = srcKeys[i];
+                dstValues[at] = srcValues[i];
+            }
+            long[] k = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = k;
+            int[] v = srcValues;
+            srcValues = dstValues;
+            dstValues = v;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+    }
+
+    /** @param key  key
+     * @param pass radix pass, 0 for the least significant byte
+     * @return bucket of the key in the pass; the sign bit is flipped so negative keys come first */
+    private static int digit(long key, int pass) {
+        int d = (int) (key >>> (pass * RADIX_BITS)) & (BUCKETS - 1);
+        return pass == PASSES - 1 ? d ^ (BUCKETS >> 1) : d;
+    }
+}
@@ -0,0 +1,279 @@
+package com.dbms.utils;
+
+import java.nio.ByteBuffer;
+
+/** Encodes the columns of a compressed page. A compressed page stores its tuples column by
+ * column after the page header, each column in whichever of these encodings is smallest for the
+ * page's values:
+ *
+ * <ul>
+ * <li>frame of reference: the column minimum, then each value minus the minimum, bit-packed
+ * <li>delta: the first value and the minimum difference between consecutive values, then each
+ * difference minus the minimum, bit-packed
+ * <li>run length: the number of runs and the minimum value, then each run's value minus the minimum
+ * and its length minus one, bit-packed
+ * </ul>
+ *
+ * Each encoded column starts with a byte identifying its encoding and ends at a byte boundary, so
+ * readers that only need some of the columns can skip over the others without decoding them. */
+class PageEncoding {
+
+    /** Frame of reference encoding */
+    private static final byte FOR = 0;
+
+    /** Delta encoding */
+    private static final byte DELTA = 1;
+
+    /** Run length encoding */
+    private static final byte RLE = 2;
+
+    /** Tracks the size of a column's smallest encoding as values are appended to it. */
+    static class ColumnSizer {
+        /** Number of values */
+        private int n;
+
+        /** Smallest and largest value */
+        private int min, max;
+
+        /** Most recent value */
+        private int last;
+
+        /** Smallest and largest difference between consecutive values */
+        private int minDelta, maxDelta;
+
+        /** Number of runs of equal values */
+        private int runs;
+
+        /** Length of the current run and of the longest run */
+        private int runLength, maxRunLength;
+
+        /** Removes all values */
+        void clear() {
+            n = 0;
+        }
+
+        /** @param v value appended to the column */
+        void add(int v) {
+            if (n == 0) {
+                min = max = v;
+                runs = runLength = maxRunLength = 1;
+            } else {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                int delta = v - last;
+                minDelta = n == 1 ? delta : Math.min(minDelta, delta);
+                maxDelta = n == 1 ? delta : Math.max(maxDelta, delta);
+                if (v == last) {
+                    maxRunLength = Math.max(maxRunLength, ++runLength);
+                } else {
+                    runs++;
+                    runLength = 1;
+                }
+            }
+            last = v;
+            n++;
+        }
+
+        /** @return number of bytes of the column's smallest encoding */
+        int size() {
+            return Math.min(forSize(), Math.min(deltaSize(), rleSize()));
+        }
+
+        /** @return encoding with the smallest size */
+        private byte encoding() {
+            int size = size();
+            return size == forSize() ? FOR : size == deltaSize() ? DELTA : RLE;
+        }
+
+        private int forSize() {
+            return 6 + packedBytes(n, width(min, max));
+        }
+
+        private int deltaSize() {
+            return 10 + (n > 1 ? packedBytes(n - 1, width(minDelta, maxDelta)) : 0);
+        }
+
+        private int rleSize() {
+            return 11 + packedBytes(runs, width(min, max) + width(1, maxRunLength));
+        }
+    }
+
+    /** @param lo smallest value
+     * @param hi largest value
+     * @return number of bits needed to store any value in [lo, hi] relative to lo */
+    private static int width(int lo, int hi) {
+        return 64 - Long.numberOfLeadingZeros((long) hi - lo);
+    }
+
+    /** @param count number of packed values
+     * @param width bits per value
+     * @return number of bytes the packed values take */
+    private static int packedBytes(int count, int width) {
+        return (int) (((long) count * width + 7) / 8);
+    }
+
+    /** Writes the first n values of a column at index in the page, in the encoding chosen by the
+     * sizer. The sizer must hold exactly these n values.
+     *
+     * @param page   page buffer
+     * @param index  byte index to write the column at
+     * @param column values of the column
+     * @param n      number of values
+     * @param sizer  sizer holding the n values
+     * @return byte index following the encoded column */
+    static int encode(ByteBuffer page, int index, int[] column, int n, ColumnSizer sizer) {
+        byte encoding = sizer.encoding();
+        page.put(index++, encoding);
+        BitWriter bits;
+        if (encoding == FOR) {
+            int width = width(sizer.min, sizer.max);
+            page.putInt(index, sizer.min);
+            page.put(index + 4, (byte) width);
+            bits = new BitWriter(page, index + 5);
+            for (int i = 0; i < n; i++) bits.write((long) column[i] - sizer.min, width);
+        } else if (encoding == DELTA) {
+            int width = n > 1 ? width(sizer.minDelta, sizer.maxDelta) : 0;
+            page.putInt(index, column[0]);
+            page.putInt(index + 4, sizer.minDelta);
+            page.put(index + 8, (byte) width);
+            bits = new BitWriter(page, index + 9);
+            for (int i = 1; i < n; i++) bits.write((long) (column[i] - column[i - 1]) - sizer.minDelta, width);
+        } else {
+            int valueWidth = width(sizer.min, sizer.max);
+            int lengthWidth = width(1, sizer.maxRunLength);
+            page.putInt(index, sizer.runs);
+            page.putInt(index + 4, sizer.min);
+            page.put(index + 8, (byte) valueWidth);
+            page.put(index + 9, (byte) lengthWidth);
+            bits = new BitWriter(page, index + 10);
+            int start = 0;
+            for (int i = 1; i <= n; i++) {
+                if (i == n || column[i] != column[start]) {
+                    bits.write((long) column[start] - sizer.min, valueWidth);
+                    bits.write(i - start - 1, lengthWidth);
+                    start = i;
+                }
+            }
+        }
+        return bits.finish();
+    }
+
+    /** Decodes a column of the page into a row-major array of tuples.
+     *
+     * @param page          page buffer
+     * @param index         byte index of the encoded column
+     * @param rows          destination, numAttributes values per tuple
+     * @param column        position of the column in the tuples
+     * @param numAttributes number of attributes per tuple
+     * @param n             number of tuples on the page
+     * @return byte index following the encoded column */
+    static int decode(ByteBuffer page, int index, int[] rows, int column, int numAttributes, int n) {
+        byte encoding = page.get(index++);
+        BitReader bits;
+        if (encoding == FOR) {
+            int min = page.getInt(index);
+            int width = page.get(index + 4);
+            bits = new BitReader(page, index + 5);
+            for (int i = 0; i < n; i++) rows[i * numAttributes + column] = (int) (min + bits.read(width));
+        } else if (encoding == DELTA) {
+            int value = page.getInt(index);
+            int minDelta = page.getInt(index + 4);
+            int width = page.get(index + 8);
+            bits = new BitReader(page, index + 9);
+            rows[column] = value;
+            for (int i = 1; i < n; i++) {
+                value += (int) (minDelta + bits.read(width));
+                rows[i * numAttributes + column] = value;
+            }
+        } else {
+            int runs = page.getInt(index);
+            int min = page.getInt(index + 4);
+            int valueWidth = page.get(index + 8);
+            int lengthWidth = page.get(index + 9);
+            bits = new BitReader(page, index + 10);
+            int i = 0;
+            for (int r = 0; r < runs; r++) {
+                int value = (int) (min + bits.read(valueWidth));
+                int end = i + (int) bits.read(lengthWidth) + 1;
+                for (; i < end; i++) rows[i * numAttributes + column] = value;
+            }
+        }
+        return bits.end();
+    }
+
+    /** @param page  page buffer
+     * @param index byte index of the encoded column
+     * @param n     number of tuples on the page
+     * @return byte index following the encoded column, found without decoding it */
+    static int skip(ByteBuffer page, int index, int n) {
+        byte encoding = page.get(index++);
+        if (encoding == FOR) return index + 5 + packedBytes(n, page.get(index + 4));
+        if (encoding == DELTA) return index + 9 + (n > 1 ? packedBytes(n - 1, page.get(index + 8)) : 0);
+        return index + 10 + packedBytes(page.getInt(index), page.get(index + 8) + page.get(index + 9));
+    }
+
+    /** Packs values of up to 32 bits into consecutive bytes of a page, least significant bit
+     * first. */
+    private static class BitWriter {
+        private final ByteBuffer page;
+        private int index;
+        private long pending;
+        private int pendingBits;
+
+        BitWriter(ByteBuffer page, int index) {
+            this.page = page;
+            this.index = index;
+        }
+
+        /** @param value non-negative value below 2^width
+         * @param width number of bits to write */
+        void write(long value, int width) {
+            pending |= value << pendingBits;
+            pendingBits += width;
+            while (pendingBits >= 8) {
+                page.put(index++, (byte) pending);
+                pending >>>= 8;
+                pendingBits -= 8;
+            }
+        }
+
+        /** Writes the remaining bits, padded to a byte.
+         *
+         * @return byte index following the packed values */
+        int finish() {
+            if (pendingBits > 0) page.put(index++, (byte) pending);
+            return index;
+        }
+    }
+
+    /** Unpacks values written by a {@code BitWriter}. */
+    private static class BitReader {
+        private final ByteBuffer page;
+        private int index;
+        private long pending;
+        private int pendingBits;
+
+        BitReader(ByteBuffer page, int index) {
+            this.page = page;
+            this.index = index;
+        }
+
+        /** @param width number of bits to read
+         * @return the value */
+        long read(int width) {
+            while (pendingBits < width) {
+                pending |= (page.get(index++) & 0xFFL) << pendingBits;
+                pendingBits += 8;
+            }
+            long value = pending & ((1L << width) - 1);
+            pending >>>= width;
+            pendingBits -= width;
+            return value;
+        }
+
+        /** @return byte index following the packed values */
+        int end() {
+            return index;
+        }
+    }
+}
@@ -8,7 +8,9 @@ public class Range {
     /** inclusive upper bound */
     public final int max;
 
-    Range(int min, int max) {
+    /** @param min inclusive lower bound
+     * @param max inclusive upper bound */
+    public Range(int min, int max) {
         this.min = min;
         this.max = max;
     }
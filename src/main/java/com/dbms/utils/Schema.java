@@ -1,16 +1,23 @@
 package com.dbms.utils;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /** Wrapper class for {@code List<ColumnName>}, providing useful methods for building schemas. */
 public class Schema {
     /** representation of a schema */
     private List<Attribute> schema;
 
+    /** Maps each column to its 0-based position in the schema */
+    private Map<Attribute, Integer> positions = new HashMap<>();
+
     /** @param wraps a list of column names in a schema */
     public Schema(List<Attribute> schema) {
         this.schema = schema;
+        int i = 0;
+        for (Attribute a : schema) positions.putIfAbsent(a, i++);
     }
 
     /** @return list of column names represented by this schema */
@@ -23,11 +30,29 @@ public class Schema {
         return schema.size();
     }
 
+    /** @param a (aliased) column name
+     * @return 0-based position of the column in this schema
+     * @throws IllegalArgumentException if the column is not in this schema */
+    public int indexOf(Attribute a) {
+        Integer i = positions.get(a);
+        if (i == null) throw new IllegalArgumentException("Attribute " + a + " not in schema " + schema);
+        return i;
+    }
+
+    /** @param s schema whose columns are all in this schema
+     * @return position in this schema of every column of {@code s}, in {@code s} order */
+    public int[] indexesOf(Schema s) {
+        int[] slots = new int[s.size()];
+        int i = 0;
+        for (Attribute a : s.get()) slots[i++] = indexOf(a);
+        return slots;
+    }
+
     /** @param tableName (aliased) table name
      * @param attributes list of {@code Attribute} objects associated with the table
      * @return schema representing all column names from tableName x columnNames */
     public static Schema from(String tableName, List<Attribute> attributes) {
-        List<Attribute> s = new LinkedList<>();
+        List<Attribute> s = new ArrayList<>(attributes.size());
         for (Attribute a : attributes) s.add(a.alias(tableName));
         return new Schema(s);
     }
@@ -35,7 +60,7 @@ public class Schema {
     /** @param tableNames list of aliased table names
      * @return schema with all table attributes combined in tableNames order */
     public static Schema from(List<String> tableNames) {
-        List<Attribute> s = new LinkedList<>();
+        List<Attribute> s = new ArrayList<>();
         for (String name : tableNames) s.addAll(Catalog.getAliasedAttributes(name));
         return new Schema(s);
     }
@@ -44,7 +69,7 @@ public class Schema {
      * @param s2 right schema
      * @return joined schema with all left schema columns then right schema columns */
     public static Schema join(Schema s1, Schema s2) {
-        List<Attribute> s = new LinkedList<>();
+        List<Attribute> s = new ArrayList<>(s1.size() + s2.size());
         s1.get().forEach(cn -> s.add(cn));
         s2.get().forEach(cn -> s.add(cn));
         return new Schema(s);
@@ -7,7 +7,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,15 +29,17 @@ public class Stats extends IO {
             List<Attribute> columnNames = schema.get(table);
             String result = table;
             Map<String, Range> columnInfo = new HashMap<>();
-            Integer max[] = new Integer[columnNames.size()];
-            Integer min[] = new Integer[columnNames.size()];
+            int max[] = new int[columnNames.size()];
+            int min[] = new int[columnNames.size()];
             Arrays.fill(max, Integer.MIN_VALUE);
             Arrays.fill(min, Integer.MAX_VALUE);
-            List<Integer> row;
-            Integer numRows = 0;
-            while ((row = tr.nextTuple()) != null) {
-                for (int i = 0; i < row.size(); i++) {
-                    int element = row.get(i);
+            int[] row = new int[columnNames.size()];
+            int numRows = 0;
+            ZoneMap zoneMap = new ZoneMap();
+            while (tr.nextTuple(row)) {
+                zoneMap.add(tr.pageId, row);
+                for (int i = 0; i < row.length; i++) {
+                    int element = row[i];
                     if (element > max[i]) max[i] = element;
                     if (element < min[i]) min[i] = element;
                 }
@@ -47,11 +48,11 @@ public class Stats extends IO {
             result += " " + numRows + " ";
             for (int i = 0; i < columnNames.size(); i++) {
                 String columnName = columnNames.get(i).COLUMN;
-                result += String.join(",", columnName, min[i].toString(), max[i].toString());
+                result += String.join(",", columnName, Integer.toString(min[i]), Integer.toString(max[i]));
                 if (i < columnNames.size() - 1) result += " ";
                 columnInfo.put(columnName, new Range(min[i], max[i]));
             }
-            stats.put(table, new TableStats(numRows, columnInfo));
+            stats.put(table, new TableStats(numRows, columnInfo, tr.getPageSize(), zoneMap));
             bw.write(result);
             bw.newLine();
         }
@@ -62,7 +63,7 @@ public class Stats extends IO {
      * @return number of pages in the relation */
     private double getNumPages(String tableName) {
         TableStats tstats = stats.get(tableName);
-        return tstats.ROWS * tstats.NUM_ATTRIBUTES * 4.0 / PAGE_SIZE;
+        return tstats.ROWS * tstats.NUM_ATTRIBUTES * 4.0 / tstats.PAGE_SIZE;
     }
 
     /** @param tableName (unaliased) table name
@@ -71,6 +72,37 @@ public class Stats extends IO {
         return getNumPages(tableName);
     }
 
+    /** @param tableName (unaliased) table name
+     * @param bounds    inclusive bounds on each column of the table, as in {@code
+     *                  ZoneMap.skippedPages}
+     * @return I/O cost of scanning the table (number of pages), without the pages the zone map
+     *         shows cannot hold tuples within the bounds */
+    public double getTableScanCost(String tableName, Range[] bounds) {
+        ZoneMap zoneMap = getZoneMap(tableName);
+        if (zoneMap.numPages() == 0) return getNumPages(tableName);
+        return getNumPages(tableName) * zoneMap.scannedPages(bounds) / zoneMap.numPages();
+    }
+
+    /** @param tableName (unaliased) table name
+     * @return per-page minimum and maximum of each column of the table */
+    public ZoneMap getZoneMap(String tableName) {
+        return stats.get(tableName).zoneMap;
+    }
+
+    /** Rebuilds the zone map of a table whose file was rewritten with its tuples in a different
+     * order.
+     *
+     * @param tableName (unaliased) table name
+     * @throws IOException */
+    public void updateZoneMap(String tableName) throws IOException {
+        TupleReader tr = new TupleReader(Catalog.pathToTable(tableName));
+        int[] row = new int[numAttributes(tableName)];
+        ZoneMap zoneMap = new ZoneMap();
+        while (tr.nextTuple(row)) zoneMap.add(tr.pageId, row);
+        tr.close();
+        stats.get(tableName).zoneMap = zoneMap;
+    }
+
     /** @param i  the index for which to calculate the cost
      * @param extent the extent of values being selected
      * @return I/O cost of using the index to select the values
@@ -134,7 +166,9 @@ public class Stats extends IO {
         for (String tableName : stats.keySet()) {
             TupleWriter tw = new TupleWriter(String.join(File.separator, path, tableName));
             TableStats ts = stats.get(tableName);
-            Set<Attribute> schema = new HashSet<>();
+            List<Attribute> attributes = new LinkedList<>();
+            for (String column : ts.columns()) attributes.add(Attribute.bundle(tableName, column));
+            Schema schema = new Schema(attributes);
             for (int i = 0; i < ts.ROWS; i++) {
                 List<Integer> rngList = new LinkedList<>();
                 for (String column : ts.columns()) {
@@ -142,7 +176,6 @@ public class Stats extends IO {
                     int max = ts.get(column).max;
                     int rng = (int) (Math.random() * (max - min)) + min;
                     rngList.add(rng);
-                    schema.add(Attribute.bundle(tableName, column));
                 }
                 Tuple t = new Tuple(schema, rngList);
                 tw.writeTuple(t);
@@ -161,13 +194,21 @@ class TableStats {
     /** number of attributes in a tuple */
     final int NUM_ATTRIBUTES;
 
+    /** number of bytes per page of the table file */
+    final int PAGE_SIZE;
+
     /** range of each table column */
     private final Map<String, Range> COLUMN_STATS;
 
-    TableStats(int rows, Map<String, Range> columnStats) {
+    /** range of each table column on each page */
+    ZoneMap zoneMap;
+
+    TableStats(int rows, Map<String, Range> columnStats, int pageSize, ZoneMap zoneMap) {
         ROWS = rows;
         NUM_ATTRIBUTES = columnStats.size();
         COLUMN_STATS = columnStats;
+        PAGE_SIZE = pageSize;
+        this.zoneMap = zoneMap;
     }
 
     Range get(String columnName) {
@@ -1,84 +1,95 @@
 package com.dbms.utils;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
 
 /** The representation of a row in a table. */
 public class Tuple {
-    /** Maps (aliased) table.column key to value in row. Insertion order represents column
-     * ordering. */
-    private LinkedHashMap<Attribute, Integer> row;
+    /** Schema of this row; column positions in {@code values} follow the schema ordering */
+    private Schema schema;
+
+    /** Data of the row, indexed by the position of each column in {@code schema} */
+    private int[] values;
 
     /** Creates a new Tuple for the table with columns and data.
      *
-     * @param tableName the name (alias) of the table associated with each column
-     * @param columns   the name of each column in the table
-     * @param data      the row of data in the table; same size as columns */
+     * @param s    schema of the row
+     * @param data the row of data in the table; same size as the schema */
     public Tuple(Schema s, List<Integer> data) {
-        row = new LinkedHashMap<>();
-        List<Attribute> columns = s.get();
-        for (int i = 0; i < data.size(); i++) {
-            row.put(columns.get(i), data.get(i));
-        }
-    }
-
-    /** @param schema row keys; assumes is in the same order as the input data
-     * @param data   associated data \ */
-    public Tuple(Set<Attribute> schema, List<Integer> data) {
-        row = new LinkedHashMap<>();
-        Iterator<Attribute> names = schema.iterator();
-        for (int i = 0; i < data.size(); i++) {
-            row.put(names.next(), data.get(i));
-        }
+        schema = s;
+        values = new int[data.size()];
+        for (int i = 0; i < values.length; i++) values[i] = data.get(i);
     }
 
-    /** Creates a new Tuple from a derived row of an old Tuple
+    /** Creates a new Tuple backed by the data array. The array is not copied, so later writes to
+     * it are visible through this Tuple.
      *
-     * @param row row map */
-    private Tuple(LinkedHashMap<Attribute, Integer> row) {
-        this.row = row;
+     * @param s    schema of the row
+     * @param data the row of data in the table; same length as the schema */
+    public Tuple(Schema s, int[] data) {
+        schema = s;
+        values = data;
     }
 
     /** @return number of attributes in this Tuple */
     public int size() {
-        return row.size();
+        return values.length;
     }
 
-    /** @param a column
+    /** Looks up the column in the schema on every call. Operators evaluating many tuples should
+     * resolve the position once with {@code Schema.indexOf} and use {@code get(int)}.
+     *
+     * @param a column
      * @return value in the column */
     public int get(Attribute a) {
-        return row.get(a);
+        return values[schema.indexOf(a)];
+    }
+
+    /** @param i 0-based position of the column in the schema
+     * @return value in the column */
+    public int get(int i) {
+        return values[i];
     }
 
-    /** @return set of {@code ColumnName} type containing table and column name */
-    public Set<Attribute> getSchema() {
-        return row.keySet();
+    /** @return data of the row, not copied, for compiled conditions that read it directly */
+    int[] values() {
+        return values;
     }
 
-    /** @return collection of all Tuple values */
-    public Collection<Integer> getValues() {
-        return row.values();
+    /** @return schema of this Tuple */
+    public Schema getSchema() {
+        return schema;
     }
 
     /** Creates a new tuple with this tuple's columns projected to the given schema.
      *
-     * @param schema list of {@code ColumnName} objects containing aliased table names and column
-     *               names; must be a subset of this tuple's schema */
+     * @param s schema containing aliased table names and column names; must be a subset of this
+     *          tuple's schema */
     public Tuple project(Schema s) {
-        List<Integer> data = new ArrayList<>(s.size());
-        for (Attribute a : s.get()) data.add(row.get(a));
+        return project(s, schema.indexesOf(s));
+    }
+
+    /** Creates a new tuple with this tuple's columns projected to the given schema.
+     *
+     * @param s     schema to project to
+     * @param slots position in this tuple's schema of every column in {@code s}, as given by
+     *              {@code Schema.indexesOf}
+     * @return projected Tuple */
+    public Tuple project(Schema s, int[] slots) {
+        int[] data = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) data[i] = values[slots[i]];
         return new Tuple(s, data);
     }
 
     /** @return Tuple data separated by commas without white space */
     @Override
     public String toString() {
-        return row.values().toString().replaceAll("\\s|\\[|\\]", "");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        return sb.toString();
     }
 
     /** @param o other object to compare
@@ -87,16 +98,22 @@ public class Tuple {
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Tuple other = (Tuple) o;
-        return Arrays.equals(row.values().toArray(), other.row.values().toArray());
+        return Arrays.equals(values, other.values);
     }
 
-    /** @param left left tuple
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    /** @param s     joined schema of left and right, as given by {@code Schema.join}
+     * @param left  left tuple
      * @param right right tuple
      * @return merged Tuple with order specified by the concatenation of left and right */
-    public static Tuple mergeTuples(Tuple left, Tuple right) {
-        LinkedHashMap<Attribute, Integer> row = new LinkedHashMap<>();
-        left.row.forEach((key, value) -> row.put(key, value));
-        right.row.forEach((key, value) -> row.put(key, value));
-        return new Tuple(row);
+    public static Tuple mergeTuples(Schema s, Tuple left, Tuple right) {
+        int[] data = new int[left.values.length + right.values.length];
+        System.arraycopy(left.values, 0, data, 0, left.values.length);
+        System.arraycopy(right.values, 0, data, left.values.length, right.values.length);
+        return new Tuple(s, data);
     }
 }
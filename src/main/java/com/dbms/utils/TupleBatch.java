@@ -0,0 +1,86 @@
+package com.dbms.utils;
+
+import java.util.Arrays;
+
+/** A block of rows passed between operators in one call. The rows are stored row-major in a single
+ * array, and a selection vector lists the rows that are still part of the result, so that filters
+ * can drop rows without moving data. */
+public class TupleBatch {
+    /** Schema of the rows */
+    public final Schema schema;
+
+    /** Number of values per row */
+    public final int width;
+
+    /** Values of the rows, {@code width} per row */
+    public final int[] data;
+
+    /** Number of rows in data */
+    public int size;
+
+    /** Positions of the selected rows in ascending order; only the first {@code count} are used */
+    public final int[] selection;
+
+    /** Number of selected rows */
+    public int count;
+
+    /** @param schema   schema of the rows
+     * @param capacity maximum number of rows */
+    public TupleBatch(Schema schema, int capacity) {
+        this.schema = schema;
+        width = schema.size();
+        data = new int[capacity * width];
+        selection = new int[capacity];
+    }
+
+    /** @return maximum number of rows */
+    public int capacity() {
+        return selection.length;
+    }
+
+    /** Removes all rows */
+    public void clear() {
+        size = 0;
+        count = 0;
+    }
+
+    /** Selects every row in data */
+    public void selectAll() {
+        for (int i = 0; i < size; i++) selection[i] = i;
+        count = size;
+    }
+
+    /** Appends a row and selects it; requires the batch is not full.
+     *
+     * @param t tuple with this batch's schema */
+    public void add(Tuple t) {
+        int offset = size * width;
+        for (int i = 0; i < width; i++) data[offset + i] = t.get(i);
+        selection[count++] = size++;
+    }
+
+    /** @param i index of a selected row, less than {@code count}
+     * @return copy of the row as a Tuple */
+    public Tuple tuple(int i) {
+        int offset = selection[i] * width;
+        return new Tuple(schema, Arrays.copyOfRange(data, offset, offset + width));
+    }
+
+    /** @param row1 position of a row in data
+     * @param row2 position of a row in data
+     * @return true if both rows hold the same values */
+    public boolean equalRows(int row1, int row2) {
+        return Arrays.equals(data, row1 * width, row1 * width + width, data, row2 * width, row2 * width + width);
+    }
+
+    /** @param row position of a row in data
+     * @param t   tuple with this batch's schema
+     * @return true if the row holds the values of t */
+    public boolean rowEquals(int row, Tuple t) {
+        int offset = row * width;
+        for (int i = 0; i < width; i++) {
+            if (data[offset + i] != t.get(i)) return false;
+        }
+        return true;
+    }
+}
@@ -2,7 +2,6 @@ package com.dbms.utils;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -19,13 +18,14 @@ public class TupleGenerator {
     static void generate(String tableName, Set<String> columns, int maxValue, int rows) {
         try {
             TupleWriter tw = new TupleWriter(tableName);
+            Schema schema = mapStringNameToColumnName(tableName, columns);
             for (int i = 0; i < rows; i++) {
                 List<Integer> rngList = new ArrayList<>();
                 for (int j = 0; j < columns.size(); j++) {
                     int rng = (int) (Math.random() * maxValue);
                     rngList.add(j, rng);
                 }
-                Tuple t = new Tuple(mapStringNameToColumnName(tableName, columns), rngList);
+                Tuple t = new Tuple(schema, rngList);
                 tw.writeTuple(t);
             }
             tw.close();
@@ -35,16 +35,16 @@ public class TupleGenerator {
     }
 
     /**
-     * Converts a {@code Set} of column names only to a {@code Set} of {@code ColumnName} type.
+     * Converts a {@code Set} of column names only to a {@code Schema} of {@code ColumnName} type.
      * @param tableName is the name of the data file
      * @param columns is a set containing the name of the columns
-     * @return {@code Set} of {@code ColumnName} type for inputting into {@code Tuple} constructor
+     * @return {@code Schema} of {@code ColumnName} type for inputting into {@code Tuple} constructor
      */
-    private static Set<Attribute> mapStringNameToColumnName(String tableName, Set<String> columns) {
-        Set<Attribute> result = new HashSet<>();
+    private static Schema mapStringNameToColumnName(String tableName, Set<String> columns) {
+        List<Attribute> result = new ArrayList<>();
         for (String column : columns) {
             result.add(Attribute.bundle(tableName, column));
         }
-        return result;
+        return new Schema(result);
     }
 }
@@ -2,13 +2,21 @@ package com.dbms.utils;
 
 import com.dbms.index.RID;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 
-/** Class for reading byte-code files containing relational data */
+/** Class for reading byte-code files containing relational data. The page size of the file, and
+ * whether its pages are compressed, are taken from its page headers. Compressed pages store each
+ * column in its own block and are decoded when they are read; readers that only need some of the
+ * columns can restrict decoding to them with {@code setColumns}. */
 public class TupleReader extends IO {
 
     /** Path to file */
@@ -17,6 +25,65 @@ public class TupleReader extends IO {
     /** flag telling whether the buffer can be used */
     private boolean memUsable;
 
+    /** True if the file is read through a memory map instead of page reads into a heap buffer */
+    private boolean mapped;
+
+    /** Number of bytes in the file */
+    private long fileSize;
+
+    /** True if the pages of the file are compressed */
+    private boolean compressed;
+
+    /** Tuples of the current page, numAttributes values per tuple; only used for compressed pages */
+    private int[] decoded = new int[0];
+
+    /** The index at which to read the next integer in decoded */
+    private int decodedIndex;
+
+    /** Columns decoded from compressed pages, null for all */
+    private boolean[] columns;
+
+    /** True for each page that sequential reads skip, null if none are skipped */
+    private boolean[] skippedPages;
+
+    /** Index of the first integer of the current page's data in the buffer */
+    private int dataStart;
+
+    /** Index of the first tuple of each page, for compressed files where pages hold varying numbers
+     * of tuples; filled in page order as far as {@code reset(int)} needs */
+    private int[] pageStarts;
+
+    /** Number of pages whose entry in pageStarts is filled in */
+    int startsKnown;
+
+    /** Index of the first tuple after the pages whose starts are known */
+    private int nextStart;
+
+    /** Pool serving the pages of the file when not in mapped mode */
+    private BufferPool pool;
+
+    /** Id of the file in the buffer pool */
+    private int fileId;
+
+    /** Buffer pool frame pinned for the current page, -1 if none */
+    private int frame = -1;
+
+    /** Number of pages to prefetch ahead of the current page, 0 for none */
+    private int readAhead;
+
+    /** Number of pages in the file */
+    private int numPages;
+
+    /** Highest page number that has been prefetched */
+    private int prefetched = -1;
+
+    /** Pages requested by {@code prefetchThrough} that the reader has not left yet, in page order,
+     * each with the buffer pool frame pinned for it */
+    private Deque<int[]> held = new ArrayDeque<>();
+
+    /** 0-based index of the page that the next call to readNextPage reads */
+    private int nextPage;
+
     /** Number of attribute per tuple in current page */
     private int numAttributes;
 
@@ -38,8 +105,31 @@ public class TupleReader extends IO {
     /** @param path (unaliased) table name (to represent file path)
      * @throws IOException */
     public TupleReader(String path) throws IOException {
+        this(path, false);
+    }
+
+    /** @param path   (unaliased) table name (to represent file path)
+     * @param mapped true to serve pages from a read-only memory map of the file, which avoids a
+     *               copy and a system call per page; otherwise, and for files of 2 GB or more,
+     *               pages are read through the shared buffer pool
+     * @throws IOException */
+    public TupleReader(String path, boolean mapped) throws IOException {
+        this(path, mapped, 0);
+    }
+
+    /** @param path      (unaliased) table name (to represent file path)
+     * @param mapped    true to read the file through a memory map, as in {@code TupleReader(String,
+     *                  boolean)}
+     * @param readAhead number of pages to prefetch into the buffer pool ahead of the page being
+     *                  read, for readers that mostly read the file front to back; ignored in
+     *                  mapped mode, where the operating system reads ahead
+     * @throws IOException */
+    public TupleReader(String path, boolean mapped, int readAhead) throws IOException {
         this.path = path;
-        buffer = ByteBuffer.allocate(PAGE_SIZE);
+        this.mapped = mapped;
+        this.readAhead = readAhead;
+        pool = Catalog.BUFFER_POOL;
+        fileId = pool.fileId(path);
         reset();
     }
 
@@ -48,11 +138,14 @@ public class TupleReader extends IO {
      * @throws IOException */
     public void reset() throws IOException {
         open();
-        fc.position(0);
+        releaseHeld(Integer.MAX_VALUE);
+        prefetched = -1;
+        nextPage = 0;
         pageId = -1;
         tupleId = -1;
         readNextPage();
         maxTuples = numTuples;
+        if (isSkipped(pageId)) tuplesRead = numTuples;
     }
 
     /** @param index index of tuple to start reading from; requires the index is a valid index to a
@@ -61,84 +154,427 @@ public class TupleReader extends IO {
     public void reset(int index) throws IOException {
         open();
         int pageIndex = index / maxTuples;
-        fc.position(pageIndex * PAGE_SIZE);
+        if (compressed) {
+            pageIndex = Arrays.binarySearch(pageStarts(index), 0, startsKnown, index);
+            if (pageIndex < 0) pageIndex = -pageIndex - 2;
+        }
+        nextPage = pageIndex;
+        releaseHeld(Integer.MAX_VALUE);
+        prefetched = -1;
         readNextPage();
-        tuplesRead = index % maxTuples;
-        bufferIndex += tuplesRead * numAttributes * 4;
+        skipTo(compressed ? index - pageStarts[pageIndex] : index % maxTuples);
         tupleId = index - 1;
         pageId = pageIndex;
     }
 
+    /** Fills in the page starts of the compressed file up to the page holding a tuple, reading
+     * only the header of each page, so pages are not read through the buffer pool just to be
+     * counted.
+     *
+     * @param index index of a tuple
+     * @return index of the first tuple of each page, filled in for startsKnown pages
+     * @throws IOException */
+    private int[] pageStarts(int index) throws IOException {
+        if (pageStarts == null) pageStarts = new int[numPages];
+        ByteBuffer header = mapped ? null : ByteBuffer.allocate(4);
+        while (startsKnown < numPages && nextStart <= index) {
+            pageStarts[startsKnown] = nextStart;
+            long position = (long) startsKnown * pageSize + 4;
+            if (mapped) {
+                nextStart += buffer.getInt((int) position);
+            } else {
+                header.clear();
+                while (header.hasRemaining() && fc.read(header, position + header.position()) >= 0) {}
+                nextStart += header.getInt(0);
+            }
+            startsKnown++;
+        }
+        return pageStarts;
+    }
+
+    /** Positions the reader at a tuple of the current page.
+     *
+     * @param tuple 0-based index of the tuple in the current page */
+    private void skipTo(int tuple) {
+        tuplesRead = tuple;
+        bufferIndex = dataStart + tuple * numAttributes * 4;
+        decodedIndex = tuple * numAttributes;
+    }
+
     /** @param rid record ID of tuple to read; requires rid is a valid record ID
      * @return tuple with the location specificed by rid
      * @throws IOException */
     public List<Integer> readTuple(RID rid) throws IOException {
-        fc.position(rid.pageId * PAGE_SIZE);
-        pageId = rid.pageId - 1;
-        readNextPage();
-        tuplesRead = rid.tupleId;
-        bufferIndex += tuplesRead * numAttributes * 4;
-        tupleId = rid.tupleId - 1;
+        seek(rid);
         return nextTuple();
     }
 
-    /** Reads the next page of data in the file. First clears the buffer, then reads the next page
-     * and the metadata values. Places bufferIndex at first integer to read in file and resets
-     * tuplesRead.
+    /** @param rid record ID of tuple to read; requires rid is a valid record ID
+     * @param row destination of the tuple data; length must be at least the number of attributes
+     * @return true if the tuple was read into row
+     * @throws IOException */
+    public boolean readTuple(RID rid, int[] row) throws IOException {
+        return readTuple(rid, row, 0);
+    }
+
+    /** @param rid    record ID of tuple to read; requires rid is a valid record ID
+     * @param rows   destination of the tuple data
+     * @param offset position in rows of the tuple's first value
+     * @return true if the tuple was read into rows
+     * @throws IOException */
+    public boolean readTuple(RID rid, int[] rows, int offset) throws IOException {
+        seek(rid);
+        return nextTuple(rows, offset);
+    }
+
+    /** Positions the reader so that the next tuple read is the one at rid. The page is only read
+     * if it is not the current page.
+     *
+     * @param rid record ID of tuple to read next; requires rid is a valid record ID
+     * @throws IOException */
+    private void seek(RID rid) throws IOException {
+        if (!memUsable || pageId != rid.pageId) {
+            open();
+            nextPage = rid.pageId;
+            pageId = rid.pageId - 1;
+            readNextPage();
+        }
+        skipTo(rid.tupleId);
+        tupleId = rid.tupleId - 1;
+    }
+
+    /** Reads the next page of data in the file and the metadata values. Places bufferIndex at first
+     * integer to read in file and resets tuplesRead. The previous page is unpinned and the new one
+     * pinned in the buffer pool. In mapped mode no data is copied; bufferIndex is positioned at
+     * the page within the mapped file instead. Compressed pages are decoded into decoded.
      *
      * @return true if new page read, false if no more pages to read
      * @throws IOException */
     private boolean readNextPage() throws IOException {
-        clearBuffer();
-        int bytesRead = fc.read(buffer);
-        if (bytesRead == -1) {
-            close();
-            return false;
-        }
-        numAttributes = buffer.getInt(0);
-        numTuples = buffer.getInt(4);
-        bufferIndex = 8;
-        tuplesRead = 0;
+        long pageStart = (long) nextPage * pageSize;
+        int base = 0;
+        if (mapped) {
+            if (pageStart >= fileSize) {
+                close();
+                return false;
+            }
+            base = (int) pageStart;
+        } else {
+            unpin();
+            frame = pool.pin(fileId, nextPage, pageSize, fc);
+            if (frame == -1) {
+                close();
+                return false;
+            }
+            buffer = pool.page(frame);
+            releaseHeld(nextPage);
+            if (readAhead > 0) prefetch(nextPage);
+        }
+        nextPage++;
+        numAttributes = buffer.getInt(base) & 0xFFFF;
+        numTuples = buffer.getInt(base + 4);
+        dataStart = base + 8;
+        if (compressed) decodePage();
+        skipTo(0);
         pageId++;
         tupleId = -1;
         return true;
     }
 
+    /** Decodes the selected columns of the current compressed page into decoded. The values of
+     * the other columns stay 0. */
+    private void decodePage() {
+        if (decoded.length < numTuples * numAttributes) decoded = new int[numTuples * numAttributes];
+        int index = dataStart;
+        for (int i = 0; i < numAttributes; i++) {
+            if (columns == null || i >= columns.length || columns[i]) {
+                index = PageEncoding.decode(buffer, index, decoded, i, numAttributes, numTuples);
+            } else {
+                index = PageEncoding.skip(buffer, index, numTuples);
+            }
+        }
+    }
+
+    /** Restricts decoding of compressed pages to some of the columns. Tuples read afterwards hold 0
+     * in the other columns. Files that are not compressed are read in full regardless.
+     *
+     * @param columns true for each 0-based column position to decode, null for all columns */
+    public void setColumns(boolean[] columns) {
+        this.columns = columns;
+        if (!compressed || !memUsable) return;
+        Arrays.fill(decoded, 0);
+        int read = tuplesRead;
+        decodePage();
+        skipTo(read);
+    }
+
     /** @return Integer list of data in the tuple, null if no tuples left or if file channel is
      *         closed
      * @throws IOException */
     public List<Integer> nextTuple() throws IOException {
-        if (tuplesRead == numTuples) {
-            if (!memUsable || !readNextPage()) return null;
-        }
+        if (!hasNextTuple()) return null;
         List<Integer> data = new ArrayList<>(numAttributes);
         for (int i = 0; i < numAttributes; i++) {
-            data.add(buffer.getInt(bufferIndex));
-            bufferIndex += 4;
+            if (compressed) {
+                data.add(decoded[decodedIndex++]);
+            } else {
+                data.add(buffer.getInt(bufferIndex));
+                bufferIndex += 4;
+            }
         }
         tuplesRead++;
         tupleId++;
         return data;
     }
 
-    /** Opens the input stream if closed, otherwise does nothing.
+    /** Decodes the next tuple straight from the page buffer into a caller-owned array, so that
+     * callers reusing the array do not allocate per tuple.
+     *
+     * @param row destination of the tuple data; length must be at least the number of attributes
+     * @return true if a tuple was read into row, false if no tuples left or if file channel is
+     *         closed
+     * @throws IOException */
+    public boolean nextTuple(int[] row) throws IOException {
+        return nextTuple(row, 0);
+    }
+
+    /** Decodes the next tuple into a caller-owned array at an offset, such as the next row of a
+     * batch.
      *
-     * @throws FileNotFoundException */
-    private void open() throws FileNotFoundException {
-        if (!memUsable) {
-            fin = new FileInputStream(path);
-            fc = fin.getChannel();
+     * @param rows   destination of the tuple data
+     * @param offset position in rows of the tuple's first value
+     * @return true if a tuple was read into rows, false if no tuples left or if file channel is
+     *         closed
+     * @throws IOException */
+    public boolean nextTuple(int[] rows, int offset) throws IOException {
+        if (!hasNextTuple()) return false;
+        if (compressed) {
+            System.arraycopy(decoded, decodedIndex, rows, offset, numAttributes);
+            decodedIndex += numAttributes;
+        } else {
+            for (int i = 0; i < numAttributes; i++) {
+                rows[offset + i] = buffer.getInt(bufferIndex);
+                bufferIndex += 4;
+            }
+        }
+        tuplesRead++;
+        tupleId++;
+        return true;
+    }
+
+    /** Reads up to max tuples into a caller-owned array, copying whole runs of tuples from each
+     * page at once.
+     *
+     * @param rows destination of the tuple data, row-major; length must be at least max times the
+     *             number of attributes
+     * @param max  maximum number of tuples to read
+     * @return number of tuples read, 0 if no tuples left or if file channel is closed
+     * @throws IOException */
+    public int nextTuples(int[] rows, int max) throws IOException {
+        int n = 0;
+        while (n < max && hasNextTuple()) {
+            int count = Math.min(max - n, numTuples - tuplesRead);
+            int length = count * numAttributes;
+            if (compressed) {
+                System.arraycopy(decoded, decodedIndex, rows, n * numAttributes, length);
+                decodedIndex += length;
+            } else {
+                ByteBuffer page = buffer.duplicate();
+                page.position(bufferIndex);
+                page.asIntBuffer().get(rows, n * numAttributes, length);
+                bufferIndex += length * 4;
+            }
+            tuplesRead += count;
+            tupleId += count;
+            n += count;
+        }
+        return n;
+    }
+
+    /** Makes sequential reads pass over some pages of the file without reading them, such as the
+     * pages a zone map shows cannot hold tuples a scan wants. If the current page is skipped and
+     * none of its tuples were read yet, it is passed over too. Reads positioned by {@code
+     * reset(int)} or a record ID are not affected.
+     *
+     * @param skippedPages true for each 0-based page to skip, null to read every page */
+    public void setSkippedPages(boolean[] skippedPages) {
+        this.skippedPages = skippedPages;
+        if (memUsable && tuplesRead == 0 && isSkipped(pageId)) tuplesRead = numTuples;
+    }
+
+    /** @param page 0-based page index
+     * @return true if sequential reads skip the page */
+    private boolean isSkipped(int page) {
+        return skippedPages != null && page >= 0 && page < skippedPages.length && skippedPages[page];
+    }
+
+    /** Prefetches the pages following the current page that are not yet requested, up to
+     * readAhead pages ahead. After a jump backwards or past the prefetched pages, prefetching
+     * restarts from the current page.
+     *
+     * @param page 0-based index of the current page */
+    private void prefetch(int page) {
+        if (prefetched < page || prefetched > page + readAhead) prefetched = page;
+        int last = Math.min(page + readAhead, numPages - 1);
+        while (prefetched < last) {
+            if (!isSkipped(++prefetched)) pool.prefetch(fileId, prefetched, pageSize, fc);
+        }
+    }
+
+    /** Asks the buffer pool to read the pages after the last requested page, up to a page, in the
+     * background, for readers that plan their own read-ahead instead of a fixed distance. The
+     * requested pages stay pinned until the reader moves past them, is reset or is closed, so
+     * they are not evicted before they are read; pages the pool has no unpinned frame for are
+     * read when the reader reaches them. Ignored in mapped mode.
+     *
+     * @param page 0-based index of the last page to request */
+    public void prefetchThrough(int page) {
+        if (mapped || !memUsable) return;
+        if (prefetched < pageId) prefetched = pageId;
+        int last = Math.min(page, numPages - 1);
+        while (prefetched < last) {
+            if (isSkipped(++prefetched)) continue;
+            int f = pool.prefetchPinned(fileId, prefetched, pageSize, fc);
+            if (f != -1) held.add(new int[] {prefetched, f});
+        }
+    }
+
+    /** Releases the pins of the pages requested by {@code prefetchThrough} up to a page
+     *
+     * @param page 0-based index of the last page to release */
+    private void releaseHeld(int page) {
+        while (!held.isEmpty() && held.peek()[0] <= page) pool.unpin(held.poll()[1]);
+    }
+
+    /** Reads the last tuple of the current page without moving the reader, which tells how far
+     * the page reaches in a sorted file.
+     *
+     * @param row destination of the tuple data; length must be at least the number of attributes
+     * @return true if the current page holds a tuple */
+    public boolean lastTupleOfPage(int[] row) {
+        if (!memUsable || numTuples == 0) return false;
+        int last = (numTuples - 1) * numAttributes;
+        if (compressed) {
+            System.arraycopy(decoded, last, row, 0, numAttributes);
+        } else {
+            for (int i = 0; i < numAttributes; i++) row[i] = buffer.getInt(dataStart + (last + i) * 4);
+        }
+        return true;
+    }
+
+    /** Reads the next page that is not skipped if the current one is exhausted.
+     *
+     * @return true if there is a tuple left to read on the current page
+     * @throws IOException */
+    private boolean hasNextTuple() throws IOException {
+        if (tuplesRead == numTuples) {
+            if (!memUsable) return false;
+            while (isSkipped(nextPage)) {
+                nextPage++;
+                pageId++;
+            }
+            return readNextPage();
+        }
+        return true;
+    }
+
+    /** Opens the input stream if closed, otherwise does nothing. In mapped mode, the file is mapped
+     * on the first open and the mapping is kept for later resets, so the channel is closed right
+     * away.
+     *
+     * @throws IOException */
+    private void open() throws IOException {
+        if (memUsable) return;
+        if (mapped && buffer != null) {
             memUsable = true;
+            return;
+        }
+        fin = new FileInputStream(path);
+        fc = fin.getChannel();
+        memUsable = true;
+        int format = readFormat(fc);
+        pageSize = pageSizeFromCode(format >>> 16 & 0xFF);
+        compressed = (format & COMPRESSED) != 0;
+        fileSize = fc.size();
+        numPages = (int) ((fileSize + pageSize - 1) / pageSize);
+        pageStarts = null;
+        startsKnown = 0;
+        nextStart = 0;
+        if (mapped) {
+            if (fileSize < Integer.MAX_VALUE) {
+                buffer = fc.map(MapMode.READ_ONLY, 0, fileSize);
+                fin.close();
+                fc.close();
+            } else {
+                mapped = false;
+            }
+        }
+    }
+
+    /** Releases the pin on the current page, if any */
+    private void unpin() {
+        if (frame == -1) return;
+        pool.unpin(frame);
+        frame = -1;
+    }
+
+    /** @return number of bytes per page of the file */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** @return number of pages in the file */
+    public int getNumPages() {
+        return numPages;
+    }
+
+    /** @return true if the pages of the file are compressed */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /** @param path path to a file of tuples
+     * @return number of bytes per page of the file, PAGE_SIZE if the file is empty
+     * @throws IOException */
+    public static int pageSizeOf(String path) throws IOException {
+        try (FileChannel fc = FileChannel.open(Paths.get(path))) {
+            return pageSizeFromCode(readFormat(fc) >>> 16 & 0xFF);
         }
     }
 
-    /** Closes the reader. Call reset to restart.
+    /** @param path path to a file of tuples
+     * @return true if the pages of the file are compressed, false if the file is empty
+     * @throws IOException */
+    public static boolean isCompressed(String path) throws IOException {
+        try (FileChannel fc = FileChannel.open(Paths.get(path))) {
+            return (readFormat(fc) & COMPRESSED) != 0;
+        }
+    }
+
+    /** The first header integer of every page holds the number of attributes in its lower half,
+     * the page size code above it and the compressed flag above that.
+     *
+     * @param fc open channel to a file of tuples
+     * @return the first header integer of the file, 0 if the file is empty
+     * @throws IOException */
+    private static int readFormat(FileChannel fc) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        if (fc.read(header, 0) < 4) return 0;
+        return header.getInt(0);
+    }
+
+    /** Closes the reader and unpins its page; no more tuples are returned until the next reset.
      *
      * @throws IOException */
     public void close() throws IOException {
         if (memUsable) {
-            fin.close();
-            fc.close();
+            if (!mapped) {
+                unpin();
+                releaseHeld(Integer.MAX_VALUE);
+                fin.close();
+                fc.close();
+            }
+            tuplesRead = numTuples;
             memUsable = false;
         }
     }
@@ -2,21 +2,109 @@ package com.dbms.utils;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-/** Class for writing new tuples to a file in byte-code */
+/** Class for writing new tuples to a file in byte-code. In write-behind mode, filled pages are
+ * collected in one of two banks of page buffers; when a bank is full it is written with a single
+ * gather write on a background thread while tuples are added to the other bank. In compressed
+ * mode, the tuples of each page are buffered by column and the page is written with the encodings
+ * of {@code PageEncoding} once no further tuple fits. */
 public class TupleWriter extends IO {
 
+    /** Background threads writing full banks, shared by all writers */
+    private static final ExecutorService FLUSHER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
     /** Number of attribute per tuple in current page */
     private int numAttributes;
 
     /** Number of tuples on current page */
     private int numTuples;
 
+    /** Path to the file being written */
+    private String path;
+
+    /** Number of pages per bank in write-behind mode, 0 to write each page synchronously */
+    private int writeBehind;
+
+    /** Two banks of page buffers in write-behind mode, null otherwise */
+    private ByteBuffer[][] banks;
+
+    /** Bank receiving new pages */
+    private int bank;
+
+    /** Index of the page being filled in the current bank */
+    private int page;
+
+    /** Pending write of the other bank, null if none */
+    private Future<?> flush;
+
+    /** True if pages are written compressed */
+    private boolean compressed;
+
+    /** Values of the current page by column, in compressed mode */
+    private int[][] columns;
+
+    /** Encoded size of each column of the current page, in compressed mode */
+    private PageEncoding.ColumnSizer[] sizers;
+
+    /** Holds the values of a {@code Tuple} written in compressed mode */
+    private int[] row;
+
     /** @param path (unaliased) file path name
      * @throws IOException */
     public TupleWriter(String path) throws IOException {
-        buffer = ByteBuffer.allocate(PAGE_SIZE);
+        this(path, 0);
+    }
+
+    /** @param path        (unaliased) file path name
+     * @param writeBehind number of pages to collect before handing them to a background write, 0
+     *                    to write each page synchronously
+     * @throws IOException */
+    public TupleWriter(String path, int writeBehind) throws IOException {
+        this(path, writeBehind, PAGE_SIZE);
+    }
+
+    /** @param path        (unaliased) file path name
+     * @param writeBehind number of pages to collect before handing them to a background write, 0
+     *                    to write each page synchronously
+     * @param pageSize    number of bytes per page, recorded in every page header; a valid page
+     *                    size
+     * @throws IOException */
+    public TupleWriter(String path, int writeBehind, int pageSize) throws IOException {
+        this(path, writeBehind, pageSize, false);
+    }
+
+    /** @param path        (unaliased) file path name
+     * @param writeBehind number of pages to collect before handing them to a background write, 0
+     *                    to write each page synchronously
+     * @param pageSize    number of bytes per page, recorded in every page header; a valid page
+     *                    size
+     * @param compressed  true to write compressed pages, which readers decode transparently
+     * @throws IOException */
+    public TupleWriter(String path, int writeBehind, int pageSize, boolean compressed) throws IOException {
+        this.path = path;
+        this.compressed = compressed;
+        this.writeBehind = writeBehind;
+        this.pageSize = checkPageSize(pageSize);
+        if (writeBehind > 0) {
+            banks = new ByteBuffer[2][writeBehind];
+            for (ByteBuffer[] b : banks) {
+                for (int i = 0; i < writeBehind; i++) b[i] = ByteBuffer.allocate(pageSize);
+            }
+            buffer = banks[0][0];
+        } else {
+            buffer = ByteBuffer.allocate(pageSize);
+        }
         fout = new FileOutputStream(path);
         fc = fout.getChannel();
         bufferIndex = 8;
@@ -27,34 +115,174 @@ public class TupleWriter extends IO {
      * @param t contains the data to write
      * @throws IOException */
     public void writeTuple(Tuple t) throws IOException {
-        if (bufferIndex + t.size() * 4 > PAGE_SIZE) writePage();
+        if (compressed) {
+            if (row == null) row = new int[t.size()];
+            for (int i = 0; i < row.length; i++) row[i] = t.get(i);
+            writeCompressed(row, 0, row.length);
+            return;
+        }
+        if (bufferIndex + t.size() * 4 > pageSize) writePage();
         numAttributes = t.size();
         numTuples++;
-        for (int v : t.getValues()) {
-            buffer.putInt(bufferIndex, v);
+        for (int i = 0; i < t.size(); i++) {
+            buffer.putInt(bufferIndex, t.get(i));
+            bufferIndex += 4;
+        }
+    }
+
+    /** Writes tuple data to file path
+     *
+     * @param row contains the data to write
+     * @throws IOException */
+    public void writeTuple(int[] row) throws IOException {
+        writeTuple(row, 0, row.length);
+    }
+
+    /** Writes tuple data stored in part of an array, such as a row of a {@code TupleBatch}
+     *
+     * @param values contains the data to write
+     * @param offset index of the tuple's first value in values
+     * @param length number of attributes of the tuple
+     * @throws IOException */
+    public void writeTuple(int[] values, int offset, int length) throws IOException {
+        if (compressed) {
+            writeCompressed(values, offset, length);
+            return;
+        }
+        if (bufferIndex + length * 4 > pageSize) writePage();
+        numAttributes = length;
+        numTuples++;
+        for (int i = offset; i < offset + length; i++) {
+            buffer.putInt(bufferIndex, values[i]);
             bufferIndex += 4;
         }
     }
 
-    /** Writes a page into the buffer
+    /** Adds the tuple to the current compressed page. If the page's encoded size would exceed the
+     * page size, the page is written without it first. Pages hold at most pageSize tuples, which
+     * bounds pages of constant columns.
+     *
+     * @param values contains the data to write
+     * @param offset index of the tuple's first value in values
+     * @param length number of attributes of the tuple
+     * @throws IOException */
+    private void writeCompressed(int[] values, int offset, int length) throws IOException {
+        if (columns == null) {
+            numAttributes = length;
+            columns = new int[numAttributes][256];
+            sizers = new PageEncoding.ColumnSizer[numAttributes];
+            for (int i = 0; i < numAttributes; i++) sizers[i] = new PageEncoding.ColumnSizer();
+        }
+        if (numTuples == columns[0].length) {
+            for (int i = 0; i < numAttributes; i++) columns[i] = Arrays.copyOf(columns[i], 2 * numTuples);
+        }
+        int size = 8;
+        for (int i = 0; i < numAttributes; i++) {
+            columns[i][numTuples] = values[offset + i];
+            sizers[i].add(values[offset + i]);
+            size += sizers[i].size();
+        }
+        numTuples++;
+        if (size <= pageSize) {
+            if (numTuples == pageSize) writePage();
+            return;
+        }
+        if (numTuples == 1) {
+            throw new IllegalArgumentException(
+                    "A tuple of " + numAttributes + " attributes does not fit on a compressed page");
+        }
+        numTuples--;
+        writePage();
+        writeCompressed(values, offset, length);
+    }
+
+    /** Encodes the buffered columns into the page buffer, recomputing the column sizes for the
+     * buffered tuples.
+     *
+     * @return byte index following the last column */
+    private int encodeColumns() {
+        int index = 8;
+        for (int i = 0; i < numAttributes; i++) {
+            sizers[i].clear();
+            for (int j = 0; j < numTuples; j++) sizers[i].add(columns[i][j]);
+            index = PageEncoding.encode(buffer, index, columns[i], numTuples, sizers[i]);
+            sizers[i].clear();
+        }
+        return index;
+    }
+
+    /** Completes the page by writing its header and zeroing its unused end, then writes it, or in
+     * write-behind mode moves on to the next buffer of the bank.
      *
      * @throws IOException */
     private void writePage() throws IOException {
-        buffer.putInt(0, numAttributes);
+        int format = pageSizeCode(pageSize) << 16;
+        if (compressed) {
+            bufferIndex = encodeColumns();
+            format |= COMPRESSED;
+        }
+        buffer.putInt(0, numAttributes | format);
         buffer.putInt(4, numTuples);
-        fc.write(buffer);
-        clearBuffer();
-        numAttributes = 0;
+        Arrays.fill(buffer.array(), bufferIndex, pageSize, (byte) 0);
+        buffer.clear();
+        if (writeBehind > 0) {
+            if (++page == writeBehind) flushBank();
+            buffer = banks[bank][page];
+        } else {
+            while (buffer.hasRemaining()) fc.write(buffer);
+        }
+        if (!compressed) numAttributes = 0;
         numTuples = 0;
         bufferIndex = 8;
     }
 
-    /** Writes the buffer if tuples remaining and closes output writer.
+    /** Waits for the other bank to be written, then starts writing the completed pages of the
+     * current bank in the background and switches banks.
+     *
+     * @throws IOException */
+    private void flushBank() throws IOException {
+        awaitFlush();
+        ByteBuffer[] pages = banks[bank];
+        int numPages = page;
+        flush = FLUSHER.submit(() -> {
+            long remaining = (long) numPages * pageSize;
+            while (remaining > 0) remaining -= fc.write(pages, 0, numPages);
+            return null;
+        });
+        bank ^= 1;
+        page = 0;
+    }
+
+    /** Waits for the pending background write, if any.
+     *
+     * @throws IOException if the write failed */
+    private void awaitFlush() throws IOException {
+        if (flush == null) return;
+        try {
+            flush.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            flush = null;
+        }
+    }
+
+    /** Writes the buffer if tuples remaining, waits for pending writes and closes output writer.
+     * Pages of the previous file contents are dropped from the buffer pool.
      *
      * @throws IOException */
     public void close() throws IOException {
         if (numTuples > 0) writePage();
+        if (writeBehind > 0) {
+            if (page > 0) flushBank();
+            awaitFlush();
+        }
         fout.close();
         fc.close();
+        Catalog.BUFFER_POOL.invalidate(path);
     }
 }
@@ -0,0 +1,66 @@
+package com.dbms.utils;
+
+import java.util.Arrays;
+
+/** Minimum and maximum of every column on every page of a table file. A scan with bounds on some
+ * columns can skip the pages whose values all fall outside those bounds. */
+public class ZoneMap {
+
+    /** Smallest value of each column on each page, indexed by page then column */
+    private int[][] mins = new int[0][];
+
+    /** Largest value of each column on each page, indexed by page then column */
+    private int[][] maxes = new int[0][];
+
+    /** Number of pages summarized */
+    private int numPages;
+
+    /** Records a tuple of the table.
+     *
+     * @param page 0-based page of the tuple; tuples are added in page order
+     * @param row  values of the tuple */
+    void add(int page, int[] row) {
+        if (page >= numPages) {
+            if (page >= mins.length) {
+                mins = Arrays.copyOf(mins, Math.max(page + 1, 2 * mins.length));
+                maxes = Arrays.copyOf(maxes, mins.length);
+            }
+            mins[page] = row.clone();
+            maxes[page] = row.clone();
+            numPages = page + 1;
+            return;
+        }
+        for (int i = 0; i < row.length; i++) {
+            mins[page][i] = Math.min(mins[page][i], row[i]);
+            maxes[page][i] = Math.max(maxes[page][i], row[i]);
+        }
+    }
+
+    /** @return number of pages of the table */
+    public int numPages() {
+        return numPages;
+    }
+
+    /** @param bounds inclusive bounds on each column, in schema order; null for an unbounded column
+     * @return true for each page on which no tuple can satisfy every bound */
+    public boolean[] skippedPages(Range[] bounds) {
+        boolean[] skipped = new boolean[numPages];
+        for (int p = 0; p < numPages; p++) {
+            for (int i = 0; i < bounds.length && !skipped[p]; i++) {
+                Range r = bounds[i];
+                skipped[p] = r != null && (maxes[p][i] < r.min || mins[p][i] > r.max);
+            }
+        }
+        return skipped;
+    }
+
+    /** @param bounds inclusive bounds on each column, as in {@code skippedPages}
+     * @return number of pages that may hold tuples within the bounds */
+    public int scannedPages(Range[] bounds) {
+        int count = 0;
+        for (boolean skipped : skippedPages(bounds)) {
+            if (!skipped) count++;
+        }
+        return count;
+    }
+}
@@ -2,11 +2,15 @@ package com.dbms.operators.physical;
 
 import static com.dbms.utils.Helpers.strExpToExp;
 import static com.dbms.utils.Helpers.strOrderBysToOrderBys;
+import static com.dbms.utils.TestHelpers.crossProduct;
+import static com.dbms.utils.TestHelpers.rows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.dbms.utils.Catalog;
+import com.dbms.utils.Tuple;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 import net.sf.jsqlparser.expression.Expression;
@@ -24,6 +28,12 @@ class ExternalSortOperatorTest {
     private static ScanOperator scanOp;
     private static SelectOperator selectOp;
     private static ExternalSortOperator sortOp;
+    private static ExternalSortOperator parallelSortOp;
+    private static BlockNestedLoopJoinOperator crossProduct;
+    private static ExternalSortOperator replacementSortOp;
+    private static ExternalSortOperator presortedSortOp;
+    private static ExternalSortOperator partitionedSortOp;
+    private static ExternalSortOperator retainedSortOp;
 
     @BeforeAll
     public static void setup() throws IOException {
@@ -33,6 +43,34 @@ class ExternalSortOperatorTest {
         scanOp = new ScanOperator("Boats");
         selectOp = new SelectOperator(scanOp, exp);
         sortOp = new ExternalSortOperator(selectOp, orderByElements, 5);
+
+        // a cross product large enough for many runs, sorted and written by several workers
+        crossProduct = crossProduct(30);
+        int workers = Catalog.SORT_WORKERS;
+        Catalog.SORT_WORKERS = 4;
+        parallelSortOp = new ExternalSortOperator(crossProduct, strOrderBysToOrderBys("Boats.E", "Sailors.A"), 3);
+
+        // the same sort with its final merge split into key ranges
+        Catalog.PARTITIONED_MERGE = true;
+        crossProduct.reset();
+        partitionedSortOp =
+                new ExternalSortOperator(crossProduct, strOrderBysToOrderBys("Boats.E", "Sailors.A"), 3);
+        Catalog.PARTITIONED_MERGE = false;
+        Catalog.SORT_WORKERS = workers;
+
+        // a streamed final merge whose output is kept for resets, as a sort merge join does
+        crossProduct.reset();
+        retainedSortOp = new ExternalSortOperator(crossProduct, strOrderBysToOrderBys("Boats.E", "Sailors.A"), 3);
+        retainedSortOp.retainOutput();
+
+        // replacement selection over the same input, then over its own sorted output
+        Catalog.REPLACEMENT_SELECTION = true;
+        crossProduct.reset();
+        replacementSortOp =
+                new ExternalSortOperator(crossProduct, strOrderBysToOrderBys("Boats.E", "Sailors.A"), 3);
+        presortedSortOp =
+                new ExternalSortOperator(replacementSortOp, strOrderBysToOrderBys("Boats.E", "Sailors.A"), 3);
+        Catalog.REPLACEMENT_SELECTION = false;
     }
 
     @AfterAll
@@ -58,6 +96,157 @@ class ExternalSortOperatorTest {
         assertEquals(expected, actual.getNextTuple().toString());
     }
 
+    @ParameterizedTest(name = "Parallel Runs Test {index}: expected {0}; actual {1} ")
+    @MethodSource("parallelRunsProvider")
+    void testParallelRuns(int expected, int actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> parallelRunsProvider() {
+        crossProduct.reset();
+        int rows = 0;
+        while (crossProduct.getNextTuple() != null) rows++;
+
+        return Stream.of(
+                Arguments.of(rows, sortedRows(parallelSortOp)),
+                Arguments.of(0, outOfOrder(parallelSortOp)),
+                Arguments.of(rows, sortedRows(partitionedSortOp)),
+                Arguments.of(0, outOfOrder(partitionedSortOp)),
+                // resets that land on the first tuple of a partition switch readers
+                Arguments.of(0, resetMismatches(partitionedSortOp, partitionedSortOp.partitionStarts)),
+                Arguments.of(rows, sortedRows(retainedSortOp)),
+                // resets behind the window read the retained output back from its spill file
+                Arguments.of(0, resetMismatches(retainedSortOp, null)),
+                Arguments.of(rows, sortedRows(replacementSortOp)),
+                Arguments.of(0, outOfOrder(replacementSortOp)),
+                Arguments.of(rows, sortedRows(presortedSortOp)));
+    }
+
+    @ParameterizedTest(name = "Run Test {index}: expected {0}; actual {1} ")
+    @MethodSource("runProvider")
+    void testRuns(boolean expected, boolean actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> runProvider() {
+        sortedRows(partitionedSortOp);
+        return Stream.of(
+                // enough runs for each of the four workers to sort some
+                Arguments.of(true, parallelSortOp.initialRuns >= 4),
+                Arguments.of(true, partitionedSortOp.partitionStarts.length > 1));
+    }
+
+    @ParameterizedTest(name = "Close Test {index}: expected {0}; actual {1} ")
+    @MethodSource("closeProvider")
+    void testResetAfterClose(List<String> expected, List<String> actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> closeProvider() throws IOException {
+        List<OrderByElement> orderBys = strOrderBysToOrderBys("Boats.E", "Sailors.A");
+        crossProduct.reset();
+        List<String> expected = rows(new ExternalSortOperator(crossProduct, orderBys, 10));
+
+        // streamed final merges closed within the window, and after tuples left it
+        crossProduct.reset();
+        ExternalSortOperator streamed = new ExternalSortOperator(crossProduct, orderBys, 3);
+        List<String> afterEarlyClose = rowsAfterClose(streamed, 3);
+        crossProduct.reset();
+        ExternalSortOperator retained = new ExternalSortOperator(crossProduct, orderBys, 3);
+        retained.retainOutput();
+        List<String> retainedAfterClose = rowsAfterClose(retained, 500);
+        List<String> retainedAfterEnd = rowsAfterClose(retained, expected.size());
+
+        return Stream.of(
+                Arguments.of(expected, afterEarlyClose),
+                Arguments.of(expected, retainedAfterClose),
+                Arguments.of(expected, retainedAfterEnd));
+    }
+
+    @ParameterizedTest(name = "Merge Block Test {index}: expected {0}; actual {1} ")
+    @MethodSource("mergeBlockProvider")
+    void testMergeBlocks(boolean expected, boolean actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> mergeBlockProvider() throws IOException {
+        // default settings: one worker, streamed final merge
+        crossProduct.reset();
+        ExternalSortOperator tenPages =
+                new ExternalSortOperator(crossProduct, strOrderBysToOrderBys("Boats.E", "Sailors.A"), 10);
+        return Stream.of(
+                Arguments.of(true, tenPages.initialRuns > 1),
+                Arguments.of(true, tenPages.blockPages >= 2),
+                // three pages leave no room for more than a page per run
+                Arguments.of(true, retainedSortOp.blockPages == 1));
+    }
+
+    @ParameterizedTest(name = "Replacement Selection Test {index}: expected {0}; actual {1} ")
+    @MethodSource("replacementSelectionProvider")
+    void testReplacementSelection(boolean expected, boolean actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> replacementSelectionProvider() {
+        return Stream.of(
+                // random input gives runs about twice as long as sorted runs
+                Arguments.of(true, replacementSortOp.initialRuns <= parallelSortOp.initialRuns / 2 + 1),
+                Arguments.of(true, presortedSortOp.initialRuns == 1));
+    }
+
+    /** @return number of tuples of the sort */
+    private static int sortedRows(ExternalSortOperator op) {
+        op.reset();
+        int rows = 0;
+        while (op.getNextTuple() != null) rows++;
+        return rows;
+    }
+
+    /** @param op   sort to read
+     * @param read number of tuples to read before closing the sort
+     * @return the tuples of the sort, read after closing and resetting it */
+    private static List<String> rowsAfterClose(ExternalSortOperator op, int read) {
+        op.reset();
+        for (int i = 0; i < read; i++) op.getNextTuple();
+        op.close();
+        op.reset();
+        return rows(op);
+    }
+
+    /** @param op      sort to read
+     * @param indexes positions of the sort to reset to, null to sample positions throughout
+     * @return number of the positions where {@code reset(index)} does not resume at the tuple read
+     *         at that position from the start */
+    private static int resetMismatches(ExternalSortOperator op, int[] indexes) {
+        op.reset();
+        List<String> tuples = new ArrayList<>();
+        for (Tuple t = op.getNextTuple(); t != null; t = op.getNextTuple()) tuples.add(t.toString());
+        if (indexes == null) {
+            indexes = new int[(tuples.size() + 96) / 97];
+            for (int i = 0; i < indexes.length; i++) indexes[i] = tuples.size() - 1 - 97 * i;
+        }
+        int mismatches = 0;
+        for (int i : indexes) {
+            op.reset(i);
+            if (!tuples.get(i).equals(op.getNextTuple().toString())) mismatches++;
+        }
+        return mismatches;
+    }
+
+    /** @return number of tuples of the sort that are out of order by Boats.E, Sailors.A */
+    private static int outOfOrder(ExternalSortOperator op) {
+        op.reset();
+        int outOfOrder = 0;
+        Tuple prev = null;
+        for (Tuple t = op.getNextTuple(); t != null; t = op.getNextTuple()) {
+            if (prev != null && (prev.get(4) > t.get(4) || prev.get(4) == t.get(4) && prev.get(0) > t.get(0))) {
+                outOfOrder++;
+            }
+            prev = t;
+        }
+        return outOfOrder;
+    }
+
     private static Stream<Arguments> nextTupleProvider() {
         return Stream.of(
                 Arguments.of("32,20,161", sortOp.getNextTuple().toString()),
@@ -72,6 +261,6 @@ class ExternalSortOperatorTest {
     }
 
     private static Stream<Arguments> resetProvider() {
-        return Stream.of(Arguments.of("32,20,161", sortOp), Arguments.of("32,20,161", sortOp));
+        return Stream.of(Arguments.of("32,20,161", sortOp));
     }
 }
@@ -0,0 +1,102 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.getColumnNamesFromSelectItems;
+import static com.dbms.utils.Helpers.strOrderBysToOrderBys;
+import static com.dbms.utils.Helpers.strSelectItemsToSelectItems;
+import static com.dbms.utils.TestHelpers.crossProduct;
+import static com.dbms.utils.TestHelpers.rows;
+import static com.dbms.utils.TestHelpers.sortedOutput;
+import static com.dbms.utils.TestHelpers.sortedOutputAfter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Schema;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the HashDuplicateEliminationOperator, compared against sort-based duplicate
+ * elimination of the same input */
+class HashDuplicateEliminationOperatorTest {
+    private static ProjectOperator projectOp;
+    private static List<String> distinct;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Catalog.init("input/general/config.txt");
+        Schema s = new Schema(getColumnNamesFromSelectItems(strSelectItemsToSelectItems("Sailors.A", "Boats.E")));
+        projectOp = new ProjectOperator(crossProduct(40), s, false);
+        distinct = rows(new DuplicateEliminationOperator(
+                new ExternalSortOperator(projectOp, strOrderBysToOrderBys("Sailors.A", "Boats.E"), 5)));
+    }
+
+    /** @param pages number of buffer pages
+     * @return hash duplicate elimination over the projection, read from the start */
+    private static HashDuplicateEliminationOperator hashDistinctOp(int pages) {
+        projectOp.reset();
+        return new HashDuplicateEliminationOperator(projectOp, pages);
+    }
+
+    /** @param pages number of buffer pages
+     * @return the sorted rows of a hash duplicate elimination over the projection */
+    private static List<String> hashDistinct(int pages) {
+        return sortedOutput(hashDistinctOp(pages));
+    }
+
+    @ParameterizedTest(name = "Distinct Test {index}: expected {0}; actual {1} ")
+    @MethodSource("distinctProvider")
+    void testDistinct(List<String> expected, List<String> actual) {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Spill Test {index}: expected {0}; actual {1} ")
+    @MethodSource("spillProvider")
+    void testSpills(boolean expected, boolean actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> distinctProvider() {
+        List<String> expected = new ArrayList<>(distinct);
+        Collections.sort(expected);
+
+        // a reset without spills returns the hash table's tuples again, in the same order
+        HashDuplicateEliminationOperator resetOp = hashDistinctOp(20);
+        List<String> firstRows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) firstRows.add(resetOp.getNextTuple().toString());
+        resetOp.reset();
+        List<String> resetRows = rows(resetOp);
+
+        HashDuplicateEliminationOperator spillingOp = hashDistinctOp(1);
+        List<String> spilledRows = sortedOutput(spillingOp);
+
+        return Stream.of(
+                Arguments.of(expected, hashDistinct(5)),
+                Arguments.of(expected, hashDistinct(2)),
+                Arguments.of(expected, spilledRows),
+                Arguments.of(firstRows, resetRows.subList(0, 10)),
+                Arguments.of(expected, resetRows.stream().sorted().collect(Collectors.toList())),
+                // reset and closed while spilled partitions are still waiting to be processed
+                Arguments.of(expected, sortedOutputAfter(spillingOp, 10, false)),
+                Arguments.of(expected, sortedOutputAfter(spillingOp, 10, true)),
+                Arguments.of(expected, sortedOutputAfter(hashDistinctOp(5), 1, true)));
+    }
+
+    private static Stream<Arguments> spillProvider() {
+        HashDuplicateEliminationOperator fitting = hashDistinctOp(20);
+        rows(fitting);
+        HashDuplicateEliminationOperator spilling = hashDistinctOp(1);
+        rows(spilling);
+        return Stream.of(
+                Arguments.of(false, fitting.table.spilled()),
+                Arguments.of(true, spilling.table.spilled()),
+                // tuples that arrive after their partition spilled are spilled unchecked
+                Arguments.of(true, spilling.table.streamSpills() > 0));
+    }
+}
@@ -0,0 +1,159 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.getEqualityConditions;
+import static com.dbms.utils.Helpers.strExpToExp;
+import static com.dbms.utils.TestHelpers.sortedOutput;
+import static com.dbms.utils.TestHelpers.sortedOutputAfter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.dbms.utils.Catalog;
+import com.dbms.utils.Tuple;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the HashJoinOperator */
+class HashJoinOperatorTest {
+    private static HashJoinOperator joinOp;
+    private static HashJoinOperator multiJoinOp;
+    private static BlockNestedLoopJoinOperator multiBnlj;
+    private static HashJoinOperator spillingJoinOp;
+    private static BlockNestedLoopJoinOperator spillingBnlj;
+    private static HashJoinOperator underestimatedJoinOp;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Catalog.init("input/general/config.txt");
+        new File(Catalog.pathToTempFile("")).mkdirs();
+        SelectOperator selectOp1 = new SelectOperator(new ScanOperator("Sailors"), strExpToExp("Sailors.A = 106"));
+        SelectOperator selectOp2 = new SelectOperator(new ScanOperator("Reserves"), strExpToExp("Reserves.H = 23"));
+        joinOp = new HashJoinOperator(
+                selectOp1, selectOp2, getEqualityConditions(strExpToExp("Sailors.A = Reserves.G")), false, 1, 8);
+
+        String multiExp = "Sailors.A = Reserves.G AND Reserves.H = Sailors.B";
+        multiJoinOp = new HashJoinOperator(
+                new ScanOperator("Sailors"),
+                new ScanOperator("Reserves"),
+                getEqualityConditions(strExpToExp(multiExp)),
+                true,
+                1,
+                8);
+        multiBnlj = new BlockNestedLoopJoinOperator(
+                new ScanOperator("Sailors"), new ScanOperator("Reserves"), strExpToExp(multiExp), 5);
+
+        // a single page holds far fewer Sailors than the table, so partitions spill and recurse
+        String spillExp = "Sailors.B = Reserves.H";
+        spillingJoinOp = new HashJoinOperator(
+                new ScanOperator("Sailors"),
+                new ScanOperator("Reserves"),
+                getEqualityConditions(strExpToExp(spillExp)),
+                true,
+                1,
+                1);
+        spillingBnlj = new BlockNestedLoopJoinOperator(
+                new ScanOperator("Sailors"), new ScanOperator("Reserves"), strExpToExp(spillExp), 5);
+
+        // two pages hold about two thirds of the Sailors, though the build side is expected to be a
+        // single tuple
+        underestimatedJoinOp = new HashJoinOperator(
+                new ScanOperator("Sailors"),
+                new ScanOperator("Reserves"),
+                getEqualityConditions(strExpToExp(spillExp)),
+                true,
+                1,
+                2);
+    }
+
+    @ParameterizedTest(name = "Next Tuple Test {index}: expected {0}; actual {1} ")
+    @MethodSource("nextTupleProvider")
+    void testGetNextTuple(String expected, String actual) throws IOException {
+        if (expected.equals("null") && actual == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    @ParameterizedTest(name = "Reset Test {index}: expected {0}; actual {1} ")
+    @MethodSource("resetProvider")
+    void testReset(String expected, HashJoinOperator actual) throws IOException {
+        actual.reset();
+        assertEquals(expected, actual.getNextTuple().toString());
+    }
+
+    @ParameterizedTest(name = "Multi-Column Test {index}: expected {0}; actual {1} ")
+    @MethodSource("multiColumnProvider")
+    void testMultiColumn(int expected, int actual) {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Spilling Test {index}: expected {0}; actual {1} ")
+    @MethodSource("spillingProvider")
+    void testSpilling(List<String> expected, List<String> actual) {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Spill Test {index}: expected {0}; actual {1} ")
+    @MethodSource("spillProvider")
+    void testSpills(boolean expected, boolean actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static int count(PhysicalOperator op) {
+        op.reset();
+        int n = 0;
+        for (Tuple t = op.getNextTuple(); t != null; t = op.getNextTuple()) n++;
+        return n;
+    }
+
+    private static Stream<Arguments> nextTupleProvider() {
+        return Stream.of(
+                Arguments.of("106,39,42,106,23", joinOp.getNextTuple().toString()),
+                Arguments.of("106,102,163,106,23", joinOp.getNextTuple().toString()),
+                Arguments.of("106,71,138,106,23", joinOp.getNextTuple().toString()),
+                Arguments.of("106,99,118,106,23", joinOp.getNextTuple().toString()),
+                Arguments.of("106,59,191,106,23", joinOp.getNextTuple().toString()),
+                Arguments.of("106,142,77,106,23", joinOp.getNextTuple().toString()),
+                Arguments.of("null", joinOp.getNextTuple()));
+    }
+
+    private static Stream<Arguments> resetProvider() {
+        return Stream.of(Arguments.of("106,39,42,106,23", joinOp), Arguments.of("106,39,42,106,23", joinOp));
+    }
+
+    private static Stream<Arguments> multiColumnProvider() {
+        return Stream.of(
+                Arguments.of(count(multiBnlj), count(multiJoinOp)),
+                // eight pages hold all of the Sailors, so no probe tuple is spilled
+                Arguments.of(0, multiJoinOp.table.streamSpills()));
+    }
+
+    private static Stream<Arguments> spillProvider() {
+        int reserves = count(new ScanOperator("Reserves"));
+        count(spillingJoinOp);
+        boolean spilled = spillingJoinOp.table.spilled();
+        count(multiJoinOp);
+        count(underestimatedJoinOp);
+        return Stream.of(
+                Arguments.of(true, spilled),
+                Arguments.of(false, multiJoinOp.table.spilled()),
+                Arguments.of(true, underestimatedJoinOp.table.spilled()),
+                // only the partitions that did not fit spill, not the whole build and probe input
+                Arguments.of(true, underestimatedJoinOp.table.streamSpills() < reserves / 2 + reserves / 4));
+    }
+
+    private static Stream<Arguments> spillingProvider() {
+        List<String> expected = sortedOutput(spillingBnlj);
+        return Stream.of(
+                Arguments.of(expected, sortedOutput(spillingJoinOp)),
+                // reset and closed while spilled partitions are still waiting to be joined
+                Arguments.of(expected, sortedOutputAfter(spillingJoinOp, 100, false)),
+                Arguments.of(expected, sortedOutputAfter(spillingJoinOp, 100, true)));
+    }
+}
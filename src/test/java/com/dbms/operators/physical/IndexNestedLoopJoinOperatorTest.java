@@ -0,0 +1,79 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.strExpToExp;
+import static com.dbms.utils.TestHelpers.sortedOutput;
+import static com.dbms.utils.TestHelpers.sortedOutputAfter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dbms.index.Index;
+import com.dbms.utils.Attribute;
+import com.dbms.utils.Catalog;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the IndexNestedLoopJoinOperator */
+class IndexNestedLoopJoinOperatorTest {
+    private static IndexNestedLoopJoinOperator joinOp;
+    private static BlockNestedLoopJoinOperator bnlj;
+    private static IndexNestedLoopJoinOperator selectJoinOp;
+    private static BlockNestedLoopJoinOperator selectBnlj;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Catalog.init("input/index/config.txt");
+        Index reservesIndex = Catalog.INDEXES.get("Reserves").get(0);
+        Attribute boatsE = Attribute.bundle("Boats", "E");
+
+        String joinExp = "Reserves.G = Boats.E";
+        joinOp = new IndexNestedLoopJoinOperator(
+                new SelectOperator(new ScanOperator("Boats"), strExpToExp("Boats.D < 200")),
+                "Reserves",
+                reservesIndex,
+                boatsE,
+                null,
+                strExpToExp(joinExp),
+                1);
+        bnlj = new BlockNestedLoopJoinOperator(
+                new SelectOperator(new ScanOperator("Boats"), strExpToExp("Boats.D < 200")),
+                new ScanOperator("Reserves"),
+                strExpToExp(joinExp),
+                5);
+
+        String selectJoinExp = "Reserves.G = Boats.E AND Reserves.H > Boats.F";
+        selectJoinOp = new IndexNestedLoopJoinOperator(
+                new SelectOperator(new ScanOperator("Boats"), strExpToExp("Boats.D < 2000")),
+                "Reserves",
+                reservesIndex,
+                boatsE,
+                strExpToExp("Reserves.H < 5000"),
+                strExpToExp(selectJoinExp),
+                1);
+        selectBnlj = new BlockNestedLoopJoinOperator(
+                new SelectOperator(new ScanOperator("Boats"), strExpToExp("Boats.D < 2000")),
+                new SelectOperator(new ScanOperator("Reserves"), strExpToExp("Reserves.H < 5000")),
+                strExpToExp(selectJoinExp),
+                5);
+    }
+
+    @ParameterizedTest(name = "Join Test {index}: expected {0}; actual {1} ")
+    @MethodSource("joinProvider")
+    void testJoin(List<String> expected, List<String> actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> joinProvider() {
+        List<String> expected = sortedOutput(bnlj);
+        List<String> selectExpected = sortedOutput(selectBnlj);
+        return Stream.of(
+                Arguments.of(expected, sortedOutput(joinOp)),
+                // reset and closed with a block of outer tuples and their matches half consumed
+                Arguments.of(expected, sortedOutputAfter(joinOp, 3, false)),
+                Arguments.of(expected, sortedOutputAfter(joinOp, 3, true)),
+                Arguments.of(selectExpected, sortedOutput(selectJoinOp)));
+    }
+}
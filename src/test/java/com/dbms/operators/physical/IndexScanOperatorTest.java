@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.dbms.index.Index;
 import com.dbms.utils.Catalog;
+import com.dbms.utils.TupleBatch;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Stream;
@@ -34,6 +36,28 @@ class IndexScanOperatorTest {
         }
     }
 
+    @ParameterizedTest(name = "Next Batch Test {index}: expected {0}; actual {1} ")
+    @MethodSource("nextBatchProvider")
+    void testGetNextBatch(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    /** @return rows of every batch of an index scan of Boats with keys in [low, high] */
+    private static String batches(Integer low, Integer high) throws IOException {
+        IndexScanOperator op = new IndexScanOperator("Boats", boatsIndex, low, high);
+        List<String> rows = new ArrayList<>();
+        for (TupleBatch b = op.getNextBatch(); b != null; b = op.getNextBatch()) {
+            for (int i = 0; i < b.count; i++) rows.add(b.tuple(i).toString());
+        }
+        return String.join(" ", rows);
+    }
+
+    private static Stream<Arguments> nextBatchProvider() throws IOException {
+        return Stream.of(
+                Arguments.of("2181,7774,2664 2488,7774,771 1038,7774,5865 6306,7777,7314", batches(7774, 7777)),
+                Arguments.of("6437,9998,2317 8439,9998,6378 4461,9999,4000 5317,9999,266", batches(9998, null)));
+    }
+
     private static Stream<Arguments> nextTupleProvider() throws IOException {
         List<Arguments> args = new LinkedList<>();
 
@@ -0,0 +1,72 @@
+package com.dbms.operators.physical;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dbms.utils.Catalog;
+import java.io.IOException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the LimitOperator */
+class LimitOperatorTest {
+    private static LimitOperator limitOp;
+    private static LimitOperator offsetOp;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Catalog.init("input/general/config.txt");
+        limitOp = new LimitOperator(new ScanOperator("Boats"), 2L, 1);
+        offsetOp = new LimitOperator(new ScanOperator("Boats"), null, 998);
+    }
+
+    @ParameterizedTest(name = "Next Tuple Test {index}: expected {0}; actual {1} ")
+    @MethodSource("nextTupleProvider")
+    void testGetNextTuple(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Reset Test {index}: expected {0}; actual {1} ")
+    @MethodSource("resetProvider")
+    void testReset(String expected, LimitOperator actual) {
+        actual.reset();
+        assertEquals(expected, actual.getNextTuple().toString());
+    }
+
+    private static Stream<Arguments> nextTupleProvider() {
+        return Stream.of(
+                Arguments.of("30,63,101", limitOp.getNextTuple().toString()),
+                Arguments.of("57,24,130", limitOp.getNextTuple().toString()),
+                Arguments.of("null", String.valueOf(limitOp.getNextTuple())),
+                Arguments.of("181,83,135", offsetOp.getNextTuple().toString()),
+                Arguments.of("44,39,136", offsetOp.getNextTuple().toString()),
+                Arguments.of("null", String.valueOf(offsetOp.getNextTuple())));
+    }
+
+    @ParameterizedTest(name = "Close Test {index}: expected {0}; actual {1} ")
+    @MethodSource("closeProvider")
+    void testClose(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> closeProvider() {
+        ScanOperator scanOp = new ScanOperator("Boats");
+        LimitOperator op = new LimitOperator(scanOp, 1L, 0);
+        String first = op.getNextTuple().toString();
+        String afterLimit = String.valueOf(op.getNextTuple());
+        String scanAfterLimit = String.valueOf(scanOp.getNextTuple());
+        op.reset();
+        return Stream.of(
+                Arguments.of("12,143,196", first),
+                Arguments.of("null", afterLimit),
+                Arguments.of("null", scanAfterLimit),
+                Arguments.of("12,143,196", op.getNextTuple().toString()),
+                Arguments.of("null", String.valueOf(op.getNextTuple())));
+    }
+
+    private static Stream<Arguments> resetProvider() {
+        return Stream.of(Arguments.of("30,63,101", limitOp), Arguments.of("181,83,135", offsetOp));
+    }
+}
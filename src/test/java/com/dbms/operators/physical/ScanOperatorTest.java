@@ -4,7 +4,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.dbms.utils.Catalog;
+import com.dbms.utils.Range;
+import com.dbms.utils.TupleBatch;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -38,6 +42,48 @@ class ScanOperatorTest {
         assertEquals(expected, actual.getNextTuple().toString());
     }
 
+    @ParameterizedTest(name = "Skip Pages Test {index}: expected {0}; actual {1} ")
+    @MethodSource("skipPagesProvider")
+    void testSkipPages(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    /** @param bounds bounds on the columns of Boats
+     * @return first tuple of a scan of Boats skipping the pages outside bounds */
+    private static String firstTuple(Range... bounds) {
+        ScanOperator op = new ScanOperator("Boats");
+        op.skipPages(bounds);
+        return String.valueOf(op.getNextTuple());
+    }
+
+    private static Stream<Arguments> skipPagesProvider() {
+        return Stream.of(
+                Arguments.of("12,143,196", firstTuple(null, new Range(143, 143), null)),
+                Arguments.of("12,143,196", firstTuple(new Range(0, 1000), null, null)),
+                Arguments.of("null", firstTuple(new Range(1000, 2000), null, null)),
+                Arguments.of("null", firstTuple(null, null, new Range(-5, -1))));
+    }
+
+    @ParameterizedTest(name = "Next Batch Test {index}: expected {0}; actual {1} ")
+    @MethodSource("nextBatchProvider")
+    void testGetNextBatch(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    /** @return size of each batch of a scan of Boats, followed by the first tuple of the first batch */
+    private static String batches() {
+        ScanOperator op = new ScanOperator("Boats");
+        List<String> sizes = new ArrayList<>();
+        TupleBatch b = op.getNextBatch();
+        String first = b.tuple(0).toString();
+        for (; b != null; b = op.getNextBatch()) sizes.add(Integer.toString(b.count));
+        return String.join(" ", sizes) + " " + first;
+    }
+
+    private static Stream<Arguments> nextBatchProvider() {
+        return Stream.of(Arguments.of("1000 12,143,196", batches()));
+    }
+
     private static Stream<Arguments> nextTupleProvider() {
         return Stream.of(
                 Arguments.of("12,143,196", scanOp.getNextTuple().toString()),
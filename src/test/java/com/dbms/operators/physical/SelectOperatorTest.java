@@ -5,7 +5,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.dbms.utils.Catalog;
+import com.dbms.utils.TupleBatch;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 import net.sf.jsqlparser.expression.Expression;
 import org.junit.jupiter.api.BeforeAll;
@@ -55,6 +58,30 @@ class SelectOperatorTest {
                 Arguments.of("null", selectOp.getNextTuple()));
     }
 
+    @ParameterizedTest(name = "Next Batch Test {index}: expected {0}; actual {1} ")
+    @MethodSource("nextBatchProvider")
+    void testGetNextBatch(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    /** @return selected tuples of a batch select over Boats, with a tuple read in between */
+    private static String batchTuples() {
+        SelectOperator op = new SelectOperator(new ScanOperator("Boats"), exp);
+        List<String> tuples = new ArrayList<>();
+        tuples.add(op.getNextTuple().toString());
+        TupleBatch b;
+        while ((b = op.getNextBatch()) != null) {
+            for (int i = 0; i < b.count; i++) tuples.add(b.tuple(i).toString());
+        }
+        return String.join(" ", tuples);
+    }
+
+    private static Stream<Arguments> nextBatchProvider() {
+        return Stream.of(Arguments.of(
+                "32,90,191 32,138,178 32,72,66 32,121,84 32,126,129 32,20,161 32,54,122 32,180,138",
+                batchTuples()));
+    }
+
     private static Stream<Arguments> resetProvider() {
         return Stream.of(Arguments.of("32,90,191", selectOp), Arguments.of("32,90,191", selectOp));
     }
@@ -0,0 +1,70 @@
+package com.dbms.operators.physical;
+
+import static com.dbms.utils.Helpers.strOrderBysToOrderBys;
+import static com.dbms.utils.TestHelpers.crossProduct;
+import static com.dbms.utils.TestHelpers.rows;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dbms.utils.Catalog;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the TopNOperator, compared against a full sort of the same input */
+class TopNOperatorTest {
+    private static BlockNestedLoopJoinOperator crossProduct;
+    private static List<OrderByElement> orderBys;
+    private static List<String> sorted;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Catalog.init("input/general/config.txt");
+        crossProduct = crossProduct(30);
+        orderBys = strOrderBysToOrderBys("Boats.E", "Sailors.A");
+        sorted = rows(new ExternalSortOperator(crossProduct, orderBys, 5));
+    }
+
+    /** @return the rows of a Top-N over the cross product */
+    private static List<String> topN(int limit, int offset) {
+        crossProduct.reset();
+        return rows(new TopNOperator(crossProduct, orderBys, limit, offset));
+    }
+
+    @ParameterizedTest(name = "Top-N Test {index}: expected {0}; actual {1} ")
+    @MethodSource("topNProvider")
+    void testTopN(List<String> expected, List<String> actual) {
+        assertEquals(expected, actual);
+    }
+
+    /** @param read  number of rows to read before interrupting the Top-N
+     * @param close true to close the Top-N after reading, false to only reset it
+     * @return the rows of a Top-N 3 over the cross product, read again after the interruption */
+    private static List<String> rowsAfter(int read, boolean close) {
+        crossProduct.reset();
+        TopNOperator op = new TopNOperator(crossProduct, orderBys, 3, 0);
+        for (int i = 0; i < read; i++) op.getNextTuple();
+        if (close) op.close();
+        op.reset();
+        return rows(op);
+    }
+
+    private static Stream<Arguments> topNProvider() {
+        return Stream.of(
+                Arguments.of(sorted.subList(0, 100), topN(100, 0)),
+                Arguments.of(sorted.subList(10, 35), topN(25, 10)),
+                Arguments.of(sorted.subList(0, 1), topN(1, 0)),
+                Arguments.of(List.of(), topN(0, 0)),
+                Arguments.of(sorted, topN(sorted.size() + 5, 0)),
+                Arguments.of(sorted.subList(sorted.size() - 2, sorted.size()), topN(5, sorted.size() - 2)),
+                Arguments.of(sorted.subList(0, 3), rowsAfter(1, false)),
+                // the kept rows are returned again though the closed child returns nothing more
+                Arguments.of(sorted.subList(0, 3), rowsAfter(1, true)),
+                // closed before the child was read, so the reset must read it
+                Arguments.of(sorted.subList(0, 3), rowsAfter(0, true)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.dbms.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the BufferPool */
+class BufferPoolTest {
+    private static BufferPool pool;
+    private static FileChannel fc;
+    private static int fileId;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        Catalog.init("input/general/config.txt");
+        pool = new BufferPool(2);
+        String path = Catalog.pathToTable("Boats");
+        fc = new FileInputStream(path).getChannel();
+        fileId = pool.fileId(path);
+    }
+
+    @ParameterizedTest(name = "Test {index}: expected {0}; actual {1} ")
+    @MethodSource("argumentProvider")
+    void testPin(String expected, String actual) {
+        assertEquals(expected, actual);
+    }
+
+    /** @param pageId page to pin and unpin
+     * @return number of attributes and tuples on the page, followed by the pool's hits and misses */
+    private static String pinPage(int pageId) throws IOException {
+        int frame = pool.pin(fileId, pageId, IO.PAGE_SIZE, fc);
+        if (frame == -1) return "null";
+        String page = pool.page(frame).getInt(0) + " " + pool.page(frame).getInt(4);
+        pool.unpin(frame);
+        return page + " " + pool.hits + "/" + pool.misses;
+    }
+
+    /** @param frames pinned frames to unpin
+     * @return number of frames in the pool afterwards */
+    private static int unpinAll(int... frames) {
+        for (int frame : frames) pool.unpin(frame);
+        return pool.size();
+    }
+
+    /** @param pageId page to prefetch pinned, then pin again after pinning the other pages
+     * @param others pages pinned and unpinned while the prefetched page is held
+     * @return number of misses pinning the prefetched page again, followed by the number of frames
+     *         in the pool once it is released */
+    private static String prefetchPinned(int pageId, int... others) throws IOException {
+        int held = pool.prefetchPinned(fileId, pageId, IO.PAGE_SIZE, fc);
+        for (int other : others) pinPage(other);
+        long misses = pool.misses;
+        pinPage(pageId);
+        pool.unpin(held);
+        return (pool.misses - misses) + " " + pool.size();
+    }
+
+    /** @param dir   temp subdirectory to read files from
+     * @param files number of files to read in it
+     * @return number of file ids the pool keeps after the directory is invalidated, compared to
+     *         before the files were read, followed by whether a file read again gets a new id */
+    private static String forgetDirectory(String dir, int files) {
+        int before = pool.files();
+        String first = Catalog.pathToTempFile(dir + File.separator + 0);
+        int id = pool.fileId(first);
+        for (int i = 1; i < files; i++) pool.fileId(Catalog.pathToTempFile(dir + File.separator + i));
+        pool.invalidateDirectory(Catalog.pathToTempFile(dir));
+        int after = pool.files() - before;
+        boolean renumbered = pool.fileId(first) != id;
+        pool.invalidate(first);
+        return after + " " + renumbered;
+    }
+
+    private static Stream<Arguments> argumentProvider() throws IOException {
+        return Stream.of(
+                Arguments.of("3 340 0/1", pinPage(0)),
+                Arguments.of("3 340 1/1", pinPage(0)),
+                Arguments.of("3 340 1/2", pinPage(1)),
+                Arguments.of("3 340 2/2", pinPage(0)),
+                Arguments.of("3 320 2/3", pinPage(2)),
+                Arguments.of("3 340 2/4", pinPage(0)),
+                Arguments.of("null", pinPage(100)),
+                Arguments.of("1", Integer.toString(pool.pin(fileId, 0, IO.PAGE_SIZE, fc))),
+                Arguments.of("0", Integer.toString(pool.pin(fileId, 2, IO.PAGE_SIZE, fc))),
+                Arguments.of("2", Integer.toString(pool.pin(fileId, 1, IO.PAGE_SIZE, fc))),
+                Arguments.of("3", Integer.toString(pool.size())),
+                Arguments.of("2", Integer.toString(unpinAll(1, 0, 2))),
+                Arguments.of("3 340 3/8", pinPage(1)),
+                Arguments.of("0 2", prefetchPinned(2, 0, 1, 0, 1)),
+                Arguments.of("0 true", forgetDirectory("forget", 100)));
+    }
+}
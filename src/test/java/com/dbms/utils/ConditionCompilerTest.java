@@ -0,0 +1,60 @@
+package com.dbms.utils;
+
+import static com.dbms.utils.Helpers.strExpToExp;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for the ConditionCompiler */
+class ConditionCompilerTest {
+    private static Attribute tA = Attribute.bundle("t", "A");
+    private static Attribute tB = Attribute.bundle("t", "B");
+    private static Attribute sC = Attribute.bundle("s", "C");
+    private static Schema left = Schema.from("t", Arrays.asList(tA, tB));
+    private static Schema right = Schema.from("s", Arrays.asList(sC));
+    private static Tuple leftTuple = new Tuple(left, Arrays.asList(3, 10));
+    private static Tuple rightTuple = new Tuple(right, Arrays.asList(10));
+
+    @ParameterizedTest(name = "Select Test {index}: expression {0} should evaluate to {1} ")
+    @MethodSource("selectProvider")
+    void testSelect(String expression, boolean expected) {
+        assertEquals(expected, ConditionCompiler.compile(strExpToExp(expression), left).test(leftTuple));
+    }
+
+    @ParameterizedTest(name = "Join Test {index}: expression {0} should evaluate to {1} ")
+    @MethodSource("joinProvider")
+    void testJoin(String expression, boolean expected) {
+        Condition c = ConditionCompiler.compile(strExpToExp(expression), left, right);
+        assertEquals(expected, c.test(leftTuple, rightTuple));
+    }
+
+    private static Stream<Arguments> selectProvider() {
+        return Stream.of(
+                Arguments.of("4<5", true),
+                Arguments.of("5<4", false),
+                Arguments.of("5!=5", false),
+                Arguments.of("5>3 AND 12=12 AND 3>2 AND 4<1", false),
+                Arguments.of("5>3 AND 12=12 AND 3>2 AND 4>1", true),
+                Arguments.of("t.A=3 AND t.B=10", true),
+                Arguments.of("t.A<4 AND t.B>=10", true),
+                Arguments.of("t.A>3", false),
+                Arguments.of("4>t.A", true),
+                Arguments.of("10<=t.B AND 3!=t.A", false),
+                Arguments.of("t.A=t.B", false),
+                Arguments.of("t.A<t.B", true));
+    }
+
+    private static Stream<Arguments> joinProvider() {
+        return Stream.of(
+                Arguments.of("t.B=s.C", true),
+                Arguments.of("s.C=t.B AND t.A=3", true),
+                Arguments.of("t.A=s.C", false),
+                Arguments.of("s.C>t.A", true),
+                Arguments.of("s.C<11", true),
+                Arguments.of("9>=s.C", false));
+    }
+}
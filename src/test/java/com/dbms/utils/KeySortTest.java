@@ -0,0 +1,70 @@
+package com.dbms.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Unit tests for KeySort */
+class KeySortTest {
+
+    @ParameterizedTest(name = "Test {index}: radix sort of {0} keys")
+    @MethodSource("radixSortProvider")
+    void testRadixSort(int n, long[] keys) {
+        long[] expected = Arrays.copyOf(keys, n);
+        Arrays.sort(expected);
+        int[] values = new int[keys.length];
+        for (int i = 0; i < values.length; i++) values[i] = i;
+        long[] original = keys.clone();
+        KeySort.radixSort(keys, values, n);
+        assertEquals(Arrays.toString(expected), Arrays.toString(Arrays.copyOf(keys, n)));
+        for (int i = 0; i < n; i++) {
+            assertEquals(original[values[i]], keys[i]);
+            if (i > 0 && keys[i] == keys[i - 1]) assertEquals(true, values[i] > values[i - 1]);
+        }
+    }
+
+    private static Stream<Arguments> radixSortProvider() {
+        Random r = new Random(19);
+        long[] random = r.longs(5000).toArray();
+        long[] duplicates = r.longs(5000, -8, 8).toArray();
+        long[] shared = r.longs(5000, 1L << 40, (1L << 40) + 300).toArray();
+        long[] packed = new long[5000];
+        for (int i = 0; i < packed.length; i++) packed[i] = KeySort.pack(r.nextInt(50) - 25, r.nextInt());
+        return Stream.of(
+                Arguments.of(0, new long[0]),
+                Arguments.of(1, new long[] {-3}),
+                Arguments.of(random.length, random),
+                Arguments.of(duplicates.length, duplicates),
+                Arguments.of(shared.length, shared),
+                Arguments.of(packed.length, packed),
+                Arguments.of(100, r.longs(200).toArray()),
+                Arguments.of(4, new long[] {Long.MAX_VALUE, -1, Long.MIN_VALUE, 0}));
+    }
+
+    @ParameterizedTest(name = "Test {index}: pack ({0}, {1}) against ({2}, {3})")
+    @MethodSource("packProvider")
+    void testPack(int high1, int low1, int high2, int low2) {
+        long k1 = KeySort.pack(high1, low1);
+        long k2 = KeySort.pack(high2, low2);
+        int expected = high1 != high2 ? Integer.compare(high1, high2) : Integer.compare(low1, low2);
+        assertEquals(Integer.signum(expected), Integer.signum(Long.compare(k1, k2)));
+        assertEquals(high1, KeySort.high(k1));
+        assertEquals(low1, KeySort.low(k1));
+    }
+
+    private static Stream<Arguments> packProvider() {
+        return Stream.of(
+                Arguments.of(0, 0, 0, 1),
+                Arguments.of(0, -1, 0, 0),
+                Arguments.of(-1, Integer.MAX_VALUE, 0, Integer.MIN_VALUE),
+                Arguments.of(5, Integer.MIN_VALUE, 5, Integer.MAX_VALUE),
+                Arguments.of(Integer.MIN_VALUE, 7, Integer.MAX_VALUE, -7),
+                Arguments.of(3, 3, 3, 3),
+                Arguments.of(-20, -5, -20, -6));
+    }
+}
@@ -0,0 +1,61 @@
+package com.dbms.utils;
+
+import static com.dbms.utils.Helpers.strExpToExp;
+
+import com.dbms.operators.physical.BlockNestedLoopJoinOperator;
+import com.dbms.operators.physical.PhysicalOperator;
+import com.dbms.operators.physical.ScanOperator;
+import com.dbms.operators.physical.SelectOperator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** A static class that provides functions shared by the operator tests for building inputs and
+ * for reading and comparing the output of physical operators. */
+public class TestHelpers {
+
+    /** @param op operator to read
+     * @return the rows op returns from its current position on, as strings */
+    public static List<String> rows(PhysicalOperator op) {
+        List<String> rows = new ArrayList<>();
+        for (Tuple t = op.getNextTuple(); t != null; t = op.getNextTuple()) rows.add(t.toString());
+        return rows;
+    }
+
+    /** @param op operator to reset and read
+     * @return all rows of op as strings, in sorted order, for comparing outputs whose order is not
+     *         defined */
+    public static List<String> sortedOutput(PhysicalOperator op) {
+        op.reset();
+        List<String> rows = rows(op);
+        Collections.sort(rows);
+        return rows;
+    }
+
+    /** Reads some rows of op, then closes or only stops reading it, and reads it again from the
+     * start, for checking that an operator interrupted in any state resumes in full.
+     *
+     * @param op    operator to read
+     * @param read  number of rows to read before interrupting
+     * @param close true to close op after reading, false to only reset it
+     * @return all rows of op as strings, read after the interruption, in sorted order */
+    public static List<String> sortedOutputAfter(PhysicalOperator op, int read, boolean close) {
+        op.reset();
+        for (int i = 0; i < read; i++) op.getNextTuple();
+        if (close) op.close();
+        return sortedOutput(op);
+    }
+
+    /** Requires the catalog to be initialized with the general input.
+     *
+     * @param maxSailor exclusive upper bound on Sailors.A
+     * @return cross product of the Sailors with A below maxSailor and all Boats, with 5 pages; large
+     *         enough to spill sorts and hash tables with few buffer pages */
+    public static BlockNestedLoopJoinOperator crossProduct(int maxSailor) {
+        return new BlockNestedLoopJoinOperator(
+                new SelectOperator(new ScanOperator("Sailors"), strExpToExp("Sailors.A < " + maxSailor)),
+                new ScanOperator("Boats"),
+                null,
+                5);
+    }
+}
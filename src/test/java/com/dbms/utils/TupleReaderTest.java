@@ -4,7 +4,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.dbms.index.RID;
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -14,11 +16,41 @@ import org.junit.jupiter.params.provider.MethodSource;
 /** Unit tests for the TupleReader */
 class TupleReaderTest {
     private static TupleReader tr;
+    private static TupleReader arrayTr;
+    private static TupleReader prefetchTr;
+    private static TupleReader compressedTr;
+    private static TupleReader runsTr;
+    private static String compressedPath;
+    private static String runsPath;
+    private static int[] row = new int[3];
 
     @BeforeAll
     public static void setup() throws IOException {
         Catalog.init("input/general/config.txt");
         tr = new TupleReader(Catalog.pathToTable("Boats"));
+        arrayTr = new TupleReader(Catalog.pathToTable("Boats"));
+        prefetchTr = new TupleReader(Catalog.pathToTable("Boats"), false, 2);
+        compressedPath = writeCompressed("compressedBoats", new TupleReader(Catalog.pathToTable("Boats")));
+        runsPath = writeCompressed("compressedRuns", null);
+        compressedTr = new TupleReader(compressedPath);
+        runsTr = new TupleReader(runsPath);
+    }
+
+    /** Writes a compressed copy of the tuples of reader, or 5000 tuples (i / 10, i, 7) if reader
+     * is null, to a temp file.
+     *
+     * @return path to the temp file */
+    private static String writeCompressed(String name, TupleReader reader) throws IOException {
+        new File(Catalog.pathToTempFile("")).mkdirs();
+        String path = Catalog.pathToTempFile(name);
+        TupleWriter tw = new TupleWriter(path, 0, IO.PAGE_SIZE, true);
+        if (reader != null) {
+            while (reader.nextTuple(row)) tw.writeTuple(row);
+        } else {
+            for (int i = 0; i < 5000; i++) tw.writeTuple(new int[] {i / 10, i, 7});
+        }
+        tw.close();
+        return path;
     }
 
     @ParameterizedTest(name = "Test {index}: expected {0}; actual {1} ")
@@ -31,6 +63,41 @@ class TupleReaderTest {
         }
     }
 
+    @ParameterizedTest(name = "Array Test {index}: expected {0}; actual {1} ")
+    @MethodSource("arrayProvider")
+    void testNextTupleIntoArray(String expected, String actual) throws IOException {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Prefetch Test {index}: expected {0}; actual {1} ")
+    @MethodSource("prefetchProvider")
+    void testReadAhead(String expected, String actual) throws IOException {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Compressed Test {index}: expected {0}; actual {1} ")
+    @MethodSource("compressedProvider")
+    void testCompressed(String expected, String actual) throws IOException {
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest(name = "Page Test {index}: expected {0}; actual {1} ")
+    @MethodSource("pageProvider")
+    void testLastTupleOfPage(String expected, String actual) throws IOException {
+        assertEquals(expected, actual);
+    }
+
+    /** @return number of tuples left in prefetchTr */
+    private static String countRemaining() throws IOException {
+        int count = 0;
+        while (prefetchTr.nextTuple(row)) count++;
+        return Integer.toString(count);
+    }
+
+    private static String nextRow() throws IOException {
+        return arrayTr.nextTuple(row) ? Arrays.toString(row) : "null";
+    }
+
     private static String resetTuple(int amount) throws IOException {
         if (amount < 0) {
             tr.reset();
@@ -65,4 +132,119 @@ class TupleReaderTest {
                 Arguments.of("[44, 39, 136]", tr.nextTuple().toString()),
                 Arguments.of("null", tr.nextTuple()));
     }
+
+    private static Stream<Arguments> arrayProvider() throws IOException {
+        return Stream.of(
+                Arguments.of("[12, 143, 196]", nextRow()),
+                Arguments.of("[30, 63, 101]", nextRow()),
+                Arguments.of("[57, 24, 130]", arrayTr.readTuple(new RID(0, 2), row) ? Arrays.toString(row) : "null"),
+                Arguments.of("[172, 68, 43]", nextRow()),
+                Arguments.of("[44, 39, 136]", arrayTr.readTuple(new RID(2, 319), row) ? Arrays.toString(row) : "null"),
+                Arguments.of("null", nextRow()));
+    }
+
+    private static Stream<Arguments> prefetchProvider() throws IOException {
+        return Stream.of(
+                Arguments.of("[12, 143, 196]", prefetchTr.nextTuple().toString()),
+                Arguments.of("999", countRemaining()),
+                Arguments.of("null", String.valueOf(prefetchTr.nextTuple())),
+                Arguments.of("[57, 24, 130]", resetTo(2)),
+                Arguments.of("[172, 68, 43]", prefetchTr.nextTuple().toString()),
+                Arguments.of("[105, 166, 52]", resetTo(995)),
+                Arguments.of("4", countRemaining()),
+                Arguments.of("[12, 143, 196]", resetTo(0)),
+                Arguments.of("999", countRemaining()));
+    }
+
+    private static Stream<Arguments> compressedProvider() throws IOException {
+        return Stream.of(
+                Arguments.of("true", String.valueOf(compressedTr.isCompressed())),
+                Arguments.of("[12, 143, 196]", compressedTr.nextTuple().toString()),
+                Arguments.of("[105, 166, 52]", reset(compressedTr, 995)),
+                Arguments.of("[199, 162, 162]", compressedTr.nextTuple().toString()),
+                Arguments.of("[57, 24, 130]", reset(compressedTr, 2)),
+                Arguments.of("[172, 68, 43]", compressedTr.nextTuple().toString()),
+                Arguments.of("[12, 143, 196]", reset(compressedTr, 0)),
+                Arguments.of("999", count(compressedTr)),
+                Arguments.of(
+                        "true",
+                        String.valueOf(new File(compressedPath).length()
+                                < new File(Catalog.pathToTable("Boats")).length())),
+                Arguments.of("[12, 0, 196]", readColumns(new boolean[] {true, false, true}, 0)),
+                Arguments.of("[0, 166, 0]", readColumns(new boolean[] {false, true, false}, 995)),
+                Arguments.of("[0, 0, 7]", runsTr.nextTuple().toString()),
+                Arguments.of("[321, 3217, 7]", reset(runsTr, 3217)),
+                Arguments.of("[499, 4999, 7]", reset(runsTr, 4999)),
+                Arguments.of("[0, 0, 7]", reset(runsTr, 0)),
+                Arguments.of("4999", count(runsTr)),
+                Arguments.of("2", String.valueOf(new File(runsPath).length() / IO.PAGE_SIZE)),
+                Arguments.of("1", startsKnown(new TupleReader(runsPath), 3)),
+                Arguments.of("2", startsKnown(new TupleReader(runsPath), 4999)));
+    }
+
+    private static Stream<Arguments> pageProvider() throws IOException {
+        TupleReader runs = new TupleReader(runsPath);
+        return Stream.of(
+                Arguments.of("[26, 186, 63]", lastOfPage(new TupleReader(Catalog.pathToTable("Boats")), 5)),
+                Arguments.of("[44, 39, 136]", lastOfPage(new TupleReader(Catalog.pathToTable("Boats")), 995)),
+                Arguments.of("3", String.valueOf(new TupleReader(Catalog.pathToTable("Boats")).getNumPages())),
+                Arguments.of(readToPageEnd(new TupleReader(runsPath)), lastOfPage(runs, 10)),
+                Arguments.of("2", String.valueOf(runs.getNumPages())));
+    }
+
+    /** @param reader reader to reset
+     * @param index  index of a tuple
+     * @return the last tuple of the page of the tuple at index */
+    private static String lastOfPage(TupleReader reader, int index) throws IOException {
+        reader.reset(index);
+        reader.nextTuple(row);
+        return reader.lastTupleOfPage(row) ? Arrays.toString(row) : "null";
+    }
+
+    /** @return the last tuple that reader reads from its first page */
+    private static String readToPageEnd(TupleReader reader) throws IOException {
+        int[] last = new int[row.length];
+        while (reader.nextTuple(row) && reader.pageId == 0) System.arraycopy(row, 0, last, 0, row.length);
+        return Arrays.toString(last);
+    }
+
+    /** @param columns columns to decode
+     * @param index   index of the tuple to read
+     * @return the tuple at index of the compressed file, decoding only columns */
+    private static String readColumns(boolean[] columns, int index) throws IOException {
+        TupleReader reader = new TupleReader(compressedPath);
+        reader.setColumns(columns);
+        reader.reset(index);
+        return reader.nextTuple().toString();
+    }
+
+    /** @param reader reader of a compressed file
+     * @param index  index of the tuple to reset reader to
+     * @return number of pages whose first tuple the reader looked up to find the tuple */
+    private static String startsKnown(TupleReader reader, int index) throws IOException {
+        reader.reset(index);
+        return String.valueOf(reader.startsKnown);
+    }
+
+    /** @return number of tuples left in reader */
+    private static String count(TupleReader reader) throws IOException {
+        int count = 0;
+        while (reader.nextTuple(row)) count++;
+        return Integer.toString(count);
+    }
+
+    /** @param reader reader to reset
+     * @param index index of the tuple to reset reader to
+     * @return the tuple at index */
+    private static String reset(TupleReader reader, int index) throws IOException {
+        reader.reset(index);
+        return reader.nextTuple().toString();
+    }
+
+    /** @param index index of the tuple to reset prefetchTr to
+     * @return the tuple at index */
+    private static String resetTo(int index) throws IOException {
+        prefetchTr.reset(index);
+        return prefetchTr.nextTuple().toString();
+    }
 }